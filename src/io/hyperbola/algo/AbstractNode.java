@@ -2,37 +2,25 @@ package io.hyperbola.algo;
 import java.util.*;
 import io.hyperbola.base.Dictionary;
 import io.hyperbola.base.*;
-import static io.hyperbola.base.Variable.HORIZONTAL;
-import static java.util.stream.Collectors.toList;
+import io.hyperbola.stream.Filterer;
+import io.hyperbola.stream.LayerFilterer;
+import static io.hyperbola.algo.DegreeHeuristicExpander.DEGREE_HEURISTIC_FILTER;
+import static io.hyperbola.algo.MinimumRemainingValueExpander.MINIMUM_REMAINING_VALUE_FILTER;
 
 /**
  * This class is an implementation of the {@link Node} interface.
  */
 public abstract class AbstractNode implements Node {
 
-    /**
-     * Appends an item to the end of the list, returning the resulting list. The origin list remains unchanged.
-     * @param former the list to be appended
-     * @param latter the item to be added to the list
-     */
-    protected static <T> List<T> appendList(List<T> former, T latter) {
-        if (latter == null) return former;
-        List<T> merged = new ArrayList<>(former.size() + 1);
-        merged.addAll(former);
-        merged.add(latter);
-        return merged;
-    }
-
     /**
      * Given all variables and the dictionary, creating an initial variable-domain map.
      * @param varSet     this survey data contains all variables
      * @param dictionary dictionary used to build the variable-domain map
      * @return an initial variable-domain map
      */
-    protected static Map<Variable, List<String>> createRootVarDomainMap(VariableSurveyResult varSet,
-                                                                        Dictionary dictionary) {
-        Map<Variable, List<String>> initMap = new HashMap<>(varSet.variables.size());
-        for (Variable v: varSet.variables) initMap.put(v, dictionary.getWordsByLength(v.length()));
+    protected static Map<Variable, Domain> createRootVarDomainMap(VariableSurveyResult varSet, Dictionary dictionary) {
+        Map<Variable, Domain> initMap = new HashMap<>(varSet.variables.size());
+        for (Variable v: varSet.variables) initMap.put(v, dictionary.getDomainByLength(v.length()));
         return initMap;
     }
 
@@ -50,33 +38,53 @@ public abstract class AbstractNode implements Node {
      * @throws EmptyDomainException when requireNonEmptyDomain is set to true and an empty domain is found
      */
     protected static void updateVarDomainAndVarNeighborsMap(Assignment assignment,
-                                                            Map<Variable, List<String>> domainMap,
+                                                            Map<Variable, Domain> domainMap,
                                                             Map<Variable, List<Variable>> neighborsMap,
                                                             boolean requireNonEmptyDomain) {
+        updateVarDomainAndVarNeighborsMap(assignment, domainMap, neighborsMap, requireNonEmptyDomain, null);
+    }
+
+    /**
+     * Given the variable-domain map and an assignment, updating the map. Updated domains and neighbors are shared
+     * through the cache with other assignments on the same maps.
+     * @param domainMap             variable-domain map
+     * @param requireNonEmptyDomain set to true to ensure the domains in the resulting map are all non-empty.
+     * @param cache                 cache of the node owning the maps before the assignment; or null if not to cache
+     * @throws EmptyDomainException when requireNonEmptyDomain is set to true and an empty domain is found
+     */
+    static void updateVarDomainAndVarNeighborsMap(Assignment assignment,
+                                                  Map<Variable, Domain> domainMap,
+                                                  Map<Variable, List<Variable>> neighborsMap,
+                                                  boolean requireNonEmptyDomain,
+                                                  DomainFilterCache cache) {
         Variable assignedVar = assignment.variable;
         assert domainMap.containsKey(assignedVar);
         assert neighborsMap.containsKey(assignedVar);
 
-        List<String> domain;
+        Domain domain;
         List<Variable> updatedNeighborList;
-        IntersectJudger j;
+        int index;
+        char c;
         for (Variable n: neighborsMap.get(assignedVar)) {
 
             // Update the domain
+            index = IntersectJudger.intersectAt(n, assignedVar);
+            c = assignment.word.charAt(IntersectJudger.intersectAt(assignedVar, n));
             domain = domainMap.get(n);
-            j = new IntersectJudger(n, assignedVar, assignment.word);
-            domain = domain.stream()
-                           .filter(j::judge)
-                           .collect(toList());
+            domain = cache == null? domain.filterByLetterAt(index, c): cache.filter(n, domain, index, c);
             if (requireNonEmptyDomain && domain.isEmpty()) {
-                throw new EmptyDomainException();
+                throw new EmptyDomainException(n);
             }
             domainMap.put(n, domain);
 
             // Update the neighbors
-            updatedNeighborList = new ArrayList<>(neighborsMap.get(n));
-            assert updatedNeighborList.contains(assignedVar);
-            updatedNeighborList.remove(assignedVar);
+            if (cache == null) {
+                updatedNeighborList = new ArrayList<>(neighborsMap.get(n));
+                assert updatedNeighborList.contains(assignedVar);
+                updatedNeighborList.remove(assignedVar);
+            } else {
+                updatedNeighborList = cache.remove(n, neighborsMap.get(n), assignedVar);
+            }
             neighborsMap.put(n, updatedNeighborList);
         }
 
@@ -91,36 +99,48 @@ public abstract class AbstractNode implements Node {
         }
     }
 
+    /** Steps of MRV and then degree heuristic, compiled into a single pass. */
+    private static final Filterer<Variable> MRV_DGH_FILTER = new LayerFilterer<Variable>()
+            .then(MINIMUM_REMAINING_VALUE_FILTER)
+            .then(DEGREE_HEURISTIC_FILTER)
+            .compile();
+
+    private DomainFilterCache filterCache = null;
+    private PartialSolution partialSolution = null;
+
     @Override
     public abstract AbstractNode expand(Assignment assignment);
 
+    /**
+     * Queries the cache used to build the offspring of this node. The cache is created on demand and is valid as long
+     * as this node lives, since a node never changes.
+     */
+    final DomainFilterCache filterCache() {
+        if (filterCache == null) filterCache = new DomainFilterCache();
+        return filterCache;
+    }
+
+    /**
+     * Drops the cache used to build the offspring of this node. It is called when this node is not going to be
+     * expanded any more, so that the memory can be released.
+     */
+    final void releaseFilterCache() {
+        filterCache = null;
+    }
+
     @Override
     public final List<Assignment> getAllAssignments() {
-        LinkedList<Assignment> records = new LinkedList<>();
-        Node n = this;
-        while (n != null) {
-            records.add(0, n.getAssignment());
-            n = n.getSuccessor();
-        }
-        return new ArrayList<>(records);
+        return peekPartialSolution().toList();
+    }
+
+    @Override
+    public final String getAssigned(Variable variable) {
+        return peekPartialSolution().wordOf(variable);
     }
 
     @Override
     public final Board getBoard() {
-        Board b = new Board(getBoardWidth(), getBoardHeight());
-        if (getSuccessor() == null) return b;
-        Node n = this;
-        Assignment a;
-        Variable v;
-        while (n != null) {
-            a = n.getAssignment();
-            if (a == null) break;
-            v = a.variable;
-            if (v.getDirection() == HORIZONTAL) b.fillHorizontal(v.getX(), v.getY(), a.word);
-            else b.fillVertical(v.getX(), v.getY(), a.word);
-            n = n.getSuccessor();
-        }
-        return b;
+        return peekPartialSolution().toBoard(getBoardWidth(), getBoardHeight());
     }
 
     @Override
@@ -128,6 +148,22 @@ public abstract class AbstractNode implements Node {
         return peekUnassignedVariableDomainMap().isEmpty();
     }
 
+    /**
+     * Queries the count of ways to assign all unassigned variables if no two of them cross each other. In such case
+     * they are independent, and the count is the product of their domain sizes.
+     * @return the count; or -1 if some unassigned variables cross each other
+     * @throws ArithmeticException if the count overflows a long
+     */
+    final long countIndependentCompletions() {
+        Map<Variable, List<Variable>> neighbors = peekUnassignedVariableNeighborsMap();
+        for (List<Variable> l: neighbors.values()) {
+            if (!l.isEmpty()) return -1;
+        }
+        long count = 1;
+        for (Domain d: peekUnassignedVariableDomainMap().values()) count = Math.multiplyExact(count, d.size());
+        return count;
+    }
+
     /**
      * Queries the height of the board
      */
@@ -142,11 +178,28 @@ public abstract class AbstractNode implements Node {
         return peekUnassignedNeighborsOf(variable).size();
     }
 
+    /**
+     * Queries the assignments performed from the root to this node. It is built from that of the successor when first
+     * queried, and is shared with the offspring afterwards.
+     */
+    PartialSolution peekPartialSolution() {
+        if (partialSolution == null) {
+            Node s = getSuccessor();
+            PartialSolution former;
+            if (s == null) former = PartialSolution.EMPTY;
+            else if (s instanceof AbstractNode) former = ((AbstractNode) s).peekPartialSolution();
+            else former = PartialSolution.of(s.getAllAssignments());
+            Assignment a = getAssignment();
+            partialSolution = a == null? former: former.plus(a);
+        }
+        return partialSolution;
+    }
+
     /**
      * Queries the domain of a given unassigned variable.
      * @return the domain; or null if the variable is already assigned.
      */
-    protected final List<String> peekDomainOf(Variable variable) {
+    protected final Domain peekDomainOf(Variable variable) {
         assert peekUnassignedVariableDomainMap().containsKey(variable);
         return peekUnassignedVariableDomainMap().get(variable);
     }
@@ -155,6 +208,27 @@ public abstract class AbstractNode implements Node {
         return peekDomainOf(variable).size();
     }
 
+    /**
+     * Queries the unassigned variables having the fewest words in their domains. By default all unassigned variables
+     * are scanned; a node keeping the domain sizes in order may override this.
+     * @return the variables; or an empty list if all variables are assigned. The list may be reused by the node, so it
+     * should be neither kept nor changed
+     */
+    protected List<Variable> peekMinimumRemainingValueVariables() {
+        return MINIMUM_REMAINING_VALUE_FILTER.filter(peekUnassignedVariables(), this);
+    }
+
+    /**
+     * Queries the unassigned variables having the fewest words in their domains, and then among them, the ones having
+     * the most unassigned neighbors. By default all unassigned variables are scanned; a node keeping the domain sizes
+     * and the counts of unassigned neighbors in order may override this.
+     * @return the variables; or an empty list if all variables are assigned. The list may be reused by the node, so it
+     * should be neither kept nor changed
+     */
+    protected List<Variable> peekMinimumRemainingValueMaximumDegreeVariables() {
+        return MRV_DGH_FILTER.filter(peekUnassignedVariables(), this);
+    }
+
     protected final List<Variable> peekUnassignedNeighborsOf(Variable variable) {
         return peekUnassignedVariableNeighborsMap().get(variable);
     }
@@ -162,7 +236,7 @@ public abstract class AbstractNode implements Node {
     /**
      * Queries the variable-domain map.
      */
-    protected abstract Map<Variable, List<String>> peekUnassignedVariableDomainMap();
+    protected abstract Map<Variable, Domain> peekUnassignedVariableDomainMap();
 
     /**
      * Queries the variable-neighbors map.
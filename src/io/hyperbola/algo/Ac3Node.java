@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.Map;
 import io.hyperbola.base.Assignment;
 import io.hyperbola.base.Dictionary;
+import io.hyperbola.base.Domain;
 import io.hyperbola.base.Variable;
 import io.hyperbola.base.VariableSurveyResult;
 import static java.util.Map.copyOf;
@@ -17,9 +18,8 @@ import static java.util.Map.copyOf;
 public class Ac3Node extends AbstractNode {
 
     private final Assignment assignment;                              // unmodifiable
-    private final List<Assignment> prevAssignments;                   // unmodifiable
     private final Ac3Node successor;
-    private final Map<Variable, List<String>> unassigned;             // unmodifiable
+    private final Map<Variable, Domain> unassigned;             // unmodifiable
     private final Map<Variable, List<Variable>> unassignedNeighbors;  // unmodifiable
     private final int wBoard, hBoard;
 
@@ -32,7 +32,6 @@ public class Ac3Node extends AbstractNode {
     public Ac3Node(VariableSurveyResult varSet, Dictionary dictionary) {
         assignment = null;
         successor = null;
-        prevAssignments = List.of();
         unassigned = createRootVarDomainMap(varSet, dictionary);
         unassignedNeighbors = createRootVarNeighborsMap(varSet);
         wBoard = varSet.boardWidth;
@@ -47,9 +46,12 @@ public class Ac3Node extends AbstractNode {
      */
     private Ac3Node(Ac3Node parent, Assignment lastAssignment) {
 
-        Map<Variable, List<String>> unassignedVarDomainMap = new HashMap<>(parent.unassigned);
+        Map<Variable, Domain> unassignedVarDomainMap = new HashMap<>(parent.unassigned);
         Map<Variable, List<Variable>> unassignedVarNeighborsMap = new HashMap<>(parent.unassignedNeighbors);
 
+        // Only the first assignment is performed on the maps of the parent, and hence can use its cache
+        DomainFilterCache cache = parent.filterCache();
+
         // Only neighbors of last assigned variable should be checked
         outer:
         while (true) {
@@ -57,18 +59,20 @@ public class Ac3Node extends AbstractNode {
             updateVarDomainAndVarNeighborsMap(lastAssignment,
                                               unassignedVarDomainMap,
                                               unassignedVarNeighborsMap,
-                                              true);
+                                              true,
+                                              cache);
+            cache = null;
             // Checks if any variable with one-item-domain exists
             List<Variable> unassignedVars = new ArrayList<>(unassignedVarDomainMap.keySet());
             unassignedVars.sort(null); // must be iterated in natural order
             for (Variable v: unassignedVars) {
-                List<String> domain = unassignedVarDomainMap.get(v);
+                Domain domain = unassignedVarDomainMap.get(v);
                 if (domain.size() != 1) continue;
                 // Here we found
                 // Builds a medium node
                 parent = new Ac3Node(parent, lastAssignment, unassignedVarDomainMap, unassignedVarNeighborsMap);
                 // Updates the assignment so that the variable-domain map will be updated in the next loop
-                String theOnlyWord = domain.stream().findFirst().get();
+                String theOnlyWord = domain.getWord(domain.firstId());
                 lastAssignment = new Assignment(theOnlyWord, v);
                 // Continues the loop. Again checks if any variable with one-item-domain exists
                 continue outer;
@@ -81,7 +85,6 @@ public class Ac3Node extends AbstractNode {
         unassigned = unassignedVarDomainMap;
         unassignedNeighbors = unassignedVarNeighborsMap;
         assignment = lastAssignment;
-        prevAssignments = appendList(successor.prevAssignments, successor.assignment);
         wBoard = successor.wBoard;
         hBoard = successor.hBoard;
     }
@@ -94,13 +97,12 @@ public class Ac3Node extends AbstractNode {
      */
     private Ac3Node(Ac3Node parent,
                     Assignment lastAssignment,
-                    Map<Variable, List<String>> unassignedVarDomainMap,
+                    Map<Variable, Domain> unassignedVarDomainMap,
                     Map<Variable, List<Variable>> unassignedVarNeighborsMap) {
         successor = parent;
         unassigned = copyOf(unassignedVarDomainMap);              // Should make a copy
         unassignedNeighbors = copyOf(unassignedVarNeighborsMap);  // Should make a copy
         assignment = lastAssignment;
-        prevAssignments = appendList(successor.prevAssignments, successor.assignment);
         wBoard = parent.wBoard;
         hBoard = parent.hBoard;
     }
@@ -121,7 +123,7 @@ public class Ac3Node extends AbstractNode {
     }
 
     @Override
-    protected Map<Variable, List<String>> peekUnassignedVariableDomainMap() {
+    protected Map<Variable, Domain> peekUnassignedVariableDomainMap() {
         return unassigned;
     }
 
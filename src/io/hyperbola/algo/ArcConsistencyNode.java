@@ -0,0 +1,217 @@
+package io.hyperbola.algo;
+import java.util.*;
+import io.hyperbola.base.Assignment;
+import io.hyperbola.base.Dictionary;
+import io.hyperbola.base.Domain;
+import io.hyperbola.base.Variable;
+import io.hyperbola.base.VariableSurveyResult;
+import static io.hyperbola.algo.IntersectJudger.intersectAt;
+
+/**
+ * This class implements arc consistency by the AC-3 algorithm. After each assignment, the domains of unassigned
+ * variables are revised until all arcs between unassigned variables are consistent, that is, every word in the domain
+ * of a variable has a word in the domain of each unassigned neighbor with the same letter at the cross. If any
+ * variable is found to be with an empty domain, prohibits such node to be generated.
+ *
+ * An arc is revised by comparing the letters at the cross of both domains. Optionally, the AC-3rm algorithm is used
+ * instead, in which the support found for every word is cached by {@link ResidualSupports} and reused while it stays
+ * in the domain.
+ *
+ * Unlike {@link Ac3Node}, variables left with one-item domains are not assigned automatically; they are assigned by
+ * the expander just like other variables.
+ */
+public class ArcConsistencyNode extends AbstractNode {
+
+    /**
+     * An arc from a subject variable to an object variable. Revising an arc removes the words in the domain of the
+     * subject which have no support in the domain of the object.
+     */
+    private static final class Arc {
+
+        final Variable subject, object;
+
+        Arc(Variable subject, Variable object) {
+            this.subject = subject;
+            this.object = object;
+        }
+
+        @Override
+        public int hashCode() {
+            return subject.hashCode() * 31 + object.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof Arc) {
+                Arc a = (Arc) o;
+                return a.subject.equals(subject) && a.object.equals(object);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A queue of arcs waiting to be revised. An arc is never queued twice.
+     */
+    private static final class ArcQueue {
+
+        private final Set<Arc> queued = new HashSet<>();
+        private final Deque<Arc> queue = new ArrayDeque<>();
+
+        void add(Variable subject, Variable object) {
+            Arc a = new Arc(subject, object);
+            if (queued.add(a)) queue.add(a);
+        }
+
+        Arc poll() {
+            Arc a = queue.poll();
+            if (a != null) queued.remove(a);
+            return a;
+        }
+    }
+
+    /**
+     * Revises the arcs in the queue until no domains are changed.
+     * @param supports residual supports; or null to revise arcs by letters at the cross
+     * @throws EmptyDomainException if some variable is found to be with an empty domain; in this case the empty domain
+     *                              is put into the map
+     */
+    private static void propagate(ArcQueue queue,
+                                  Map<Variable, Domain> domainMap,
+                                  Map<Variable, List<Variable>> neighborsMap,
+                                  ResidualSupports supports) {
+        Arc arc;
+        Domain domain, objectDomain, revised;
+        while ((arc = queue.poll()) != null) {
+            domain = domainMap.get(arc.subject);
+            objectDomain = domainMap.get(arc.object);
+            if (supports == null) {
+                int letters = objectDomain.letterMaskAt(intersectAt(arc.object, arc.subject));
+                revised = domain.filterByLetterMaskAt(intersectAt(arc.subject, arc.object), letters);
+            } else {
+                revised = supports.revise(arc.subject, domain, arc.object, objectDomain);
+            }
+            if (revised == domain) continue;
+            domainMap.put(arc.subject, revised);
+            if (revised.isEmpty()) throw new EmptyDomainException(arc.subject);
+            // The domain is changed; all arcs toward it should be revised again
+            for (Variable n: neighborsMap.get(arc.subject)) {
+                if (n != arc.object) queue.add(n, arc.subject);
+            }
+        }
+    }
+
+    private final Assignment assignment;
+    private final ArcConsistencyNode successor;
+    private final ResidualSupports supports;
+    private final Map<Variable, Domain> unassigned;
+    private final Map<Variable, List<Variable>> unassignedNeighbors;
+    private final int wBoard, hBoard;
+
+    /**
+     * Creates a root node whose domains are made arc consistent by AC-3.
+     * @param varSet     variables and board dimensions data
+     * @param dictionary dictionary to be used
+     * @see #ArcConsistencyNode(VariableSurveyResult, Dictionary, boolean)
+     */
+    public ArcConsistencyNode(VariableSurveyResult varSet, Dictionary dictionary) {
+        this(varSet, dictionary, false);
+    }
+
+    /**
+     * Creates a root node whose domains are made arc consistent. Dictionary must be given so that the variable-domain
+     * map can be built. Variable survey data must be given so the node knows the size of board so that it can build
+     * it. If the puzzle is found to be unsolvable, some variable of the root node has an empty domain.
+     * @param varSet                  variables and board dimensions data
+     * @param dictionary              dictionary to be used
+     * @param requireResidualSupports set to true to use AC-3rm in this node and its offspring
+     */
+    public ArcConsistencyNode(VariableSurveyResult varSet, Dictionary dictionary, boolean requireResidualSupports) {
+        supports = requireResidualSupports? new ResidualSupports(varSet, dictionary): null;
+        Map<Variable, Domain> unassignedVarDomainMap = createRootVarDomainMap(varSet, dictionary);
+        Map<Variable, List<Variable>> unassignedVarNeighborsMap = createRootVarNeighborsMap(varSet);
+        ArcQueue queue = new ArcQueue();
+        for (Variable v: varSet.variables) {
+            for (Variable n: v.getNeighbors()) queue.add(v, n);
+        }
+        try {propagate(queue, unassignedVarDomainMap, unassignedVarNeighborsMap, supports);}
+        catch (EmptyDomainException ignored) {}
+
+        assignment = null;
+        successor = null;
+        unassigned = unassignedVarDomainMap;
+        unassignedNeighbors = unassignedVarNeighborsMap;
+        wBoard = varSet.boardWidth;
+        hBoard = varSet.boardHeight;
+    }
+
+    /**
+     * Creates a non-root node.
+     * @param parent         node which is expanded
+     * @param lastAssignment the parent node performs this assignment and then generates this node
+     * @throws EmptyDomainException if such assignment resulting to some variable having empty domain
+     */
+    private ArcConsistencyNode(ArcConsistencyNode parent, Assignment lastAssignment) {
+        Map<Variable, Domain> unassignedVarDomainMap = new HashMap<>(parent.unassigned);
+        Map<Variable, List<Variable>> unassignedVarNeighborsMap = new HashMap<>(parent.unassignedNeighbors);
+
+        // Arcs toward the assigned variable are revised by forward checking
+        Variable assignedVar = lastAssignment.variable;
+        updateVarDomainAndVarNeighborsMap(lastAssignment,
+                                          unassignedVarDomainMap,
+                                          unassignedVarNeighborsMap,
+                                          true,
+                                          parent.filterCache());
+
+        // Arcs toward the changed neighbors must be revised again
+        ArcQueue queue = new ArcQueue();
+        for (Variable n: parent.unassignedNeighbors.get(assignedVar)) {
+            if (unassignedVarDomainMap.get(n) == parent.unassigned.get(n)) continue;
+            for (Variable m: unassignedVarNeighborsMap.get(n)) queue.add(m, n);
+        }
+        propagate(queue, unassignedVarDomainMap, unassignedVarNeighborsMap, parent.supports);
+
+        successor = parent;
+        supports = parent.supports;
+        assignment = lastAssignment;
+        unassigned = unassignedVarDomainMap;
+        unassignedNeighbors = unassignedVarNeighborsMap;
+        wBoard = parent.wBoard;
+        hBoard = parent.hBoard;
+    }
+
+    @Override
+    public ArcConsistencyNode expand(Assignment assignment) {
+        return new ArcConsistencyNode(this, assignment);
+    }
+
+    @Override
+    protected int getBoardHeight() {
+        return hBoard;
+    }
+
+    @Override
+    protected int getBoardWidth() {
+        return wBoard;
+    }
+
+    @Override
+    protected Map<Variable, Domain> peekUnassignedVariableDomainMap() {
+        return unassigned;
+    }
+
+    @Override
+    protected Map<Variable, List<Variable>> peekUnassignedVariableNeighborsMap() {
+        return unassignedNeighbors;
+    }
+
+    @Override
+    public Assignment getAssignment() {
+        return assignment;
+    }
+
+    @Override
+    public ArcConsistencyNode getSuccessor() {
+        return successor;
+    }
+}
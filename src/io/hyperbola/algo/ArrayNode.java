@@ -0,0 +1,170 @@
+package io.hyperbola.algo;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import io.hyperbola.base.Assignment;
+import io.hyperbola.base.Dictionary;
+import io.hyperbola.base.Domain;
+import io.hyperbola.base.Variable;
+import io.hyperbola.base.VariableSurveyResult;
+
+/**
+ * This class is an implementation of {@link Node} equivalent to {@link BasicNode}, except that the domains and the
+ * unassigned neighbors are stored in arrays indexed by {@link Variable#getId() variable ids} rather than in hash maps.
+ * Generating an offspring node copies two arrays instead of rehashing two maps. Forward checking is supported and it
+ * is just an option.
+ *
+ * The variables must be built by {@link Variable.Builder} so that they are given ids.
+ */
+public class ArrayNode extends AbstractNode {
+
+    /**
+     * Given the domains, the neighbors and an assignment, updating the arrays. An assigned variable is with null
+     * domain and null neighbors.
+     * @param requireNonEmptyDomain set to true to ensure the domains in the resulting arrays are all non-empty.
+     * @param cache                 cache of the node owning the arrays before the assignment; or null if not to cache
+     * @throws EmptyDomainException when requireNonEmptyDomain is set to true and an empty domain is found
+     */
+    static void updateDomainsAndNeighbors(Assignment assignment,
+                                          Domain[] domains,
+                                          List<Variable>[] neighbors,
+                                          boolean requireNonEmptyDomain,
+                                          DomainFilterCache cache) {
+        Variable assignedVar = assignment.variable;
+        int assignedId = assignedVar.getId();
+        assert domains[assignedId] != null;
+
+        Domain domain;
+        List<Variable> updatedNeighborList;
+        int index, id;
+        char c;
+        for (Variable n: neighbors[assignedId]) {
+            id = n.getId();
+
+            // Update the domain
+            index = IntersectJudger.intersectAt(n, assignedVar);
+            c = assignment.word.charAt(IntersectJudger.intersectAt(assignedVar, n));
+            domain = cache == null? domains[id].filterByLetterAt(index, c): cache.filter(n, domains[id], index, c);
+            if (requireNonEmptyDomain && domain.isEmpty()) {
+                throw new EmptyDomainException(n);
+            }
+            domains[id] = domain;
+
+            // Update the neighbors
+            if (cache == null) {
+                updatedNeighborList = new ArrayList<>(neighbors[id]);
+                assert updatedNeighborList.contains(assignedVar);
+                updatedNeighborList.remove(assignedVar);
+            } else {
+                updatedNeighborList = cache.remove(n, neighbors[id], assignedVar);
+            }
+            neighbors[id] = updatedNeighborList;
+        }
+
+        domains[assignedId] = null;
+        neighbors[assignedId] = null;
+    }
+
+    private final Assignment assignment;
+    private final Domain[] domains;
+    private final boolean forwardCheck;
+    private final List<Variable>[] neighbors;
+    private final ArrayNode successor;
+    private final int unassignedCount;
+    private final List<Variable> variables;
+    private final int wBoard, hBoard;
+    private Map<Variable, Domain> domainMap = null;
+    private Map<Variable, List<Variable>> neighborsMap = null;
+
+    /**
+     * Creates a root node. Dictionary must be given so that the domains can be built. Variable survey data must be
+     * given so the node knows the size of board so that it can build it.
+     * @param varSet              variables and board dimensions data
+     * @param dictionary          dictionary to be used
+     * @param requireForwardCheck set to true to enables forward checking in its offspring nodes
+     * @throws IllegalArgumentException if the variables are not given ids by {@link Variable.Builder}
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ArrayNode(VariableSurveyResult varSet, Dictionary dictionary, boolean requireForwardCheck) {
+        List<Variable> vars = varSet.variables;
+        Domain[] rootDomains = new Domain[vars.size()];
+        List<Variable>[] rootNeighbors = new List[vars.size()];
+        Variable v;
+        for (int i = 0; i < vars.size(); i++) {
+            v = vars.get(i);
+            if (v.getId() != i) throw new IllegalArgumentException();
+            rootDomains[i] = dictionary.getDomainByLength(v.length());
+            rootNeighbors[i] = v.getNeighbors();
+        }
+        assignment = null;
+        successor = null;
+        variables = vars;
+        domains = rootDomains;
+        neighbors = rootNeighbors;
+        unassignedCount = vars.size();
+        wBoard = varSet.boardWidth;
+        hBoard = varSet.boardHeight;
+        forwardCheck = requireForwardCheck;
+    }
+
+    /**
+     * Creates a non-root node. If the forward checking is enabled, an {@link EmptyDomainException} might be thrown.
+     * @param parent         successor node
+     * @param lastAssignment successor performs such assignment and then generates this node
+     */
+    private ArrayNode(ArrayNode parent, Assignment lastAssignment) {
+        Domain[] childDomains = parent.domains.clone();
+        List<Variable>[] childNeighbors = parent.neighbors.clone();
+        updateDomainsAndNeighbors(lastAssignment,
+                                  childDomains,
+                                  childNeighbors,
+                                  parent.forwardCheck,
+                                  parent.filterCache());
+        successor = parent;
+        assignment = lastAssignment;
+        variables = parent.variables;
+        domains = childDomains;
+        neighbors = childNeighbors;
+        unassignedCount = parent.unassignedCount - 1;
+        wBoard = parent.wBoard;
+        hBoard = parent.hBoard;
+        forwardCheck = parent.forwardCheck;
+    }
+
+    @Override
+    public ArrayNode expand(Assignment assignment) {
+        return new ArrayNode(this, assignment);
+    }
+
+    @Override
+    protected int getBoardHeight() {
+        return hBoard;
+    }
+
+    @Override
+    protected int getBoardWidth() {
+        return wBoard;
+    }
+
+    @Override
+    protected Map<Variable, Domain> peekUnassignedVariableDomainMap() {
+        if (domainMap == null) domainMap = new VariableArrayMap<>(variables, domains, unassignedCount);
+        return domainMap;
+    }
+
+    @Override
+    protected Map<Variable, List<Variable>> peekUnassignedVariableNeighborsMap() {
+        if (neighborsMap == null) neighborsMap = new VariableArrayMap<>(variables, neighbors, unassignedCount);
+        return neighborsMap;
+    }
+
+    @Override
+    public Assignment getAssignment() {
+        return assignment;
+    }
+
+    @Override
+    public ArrayNode getSuccessor() {
+        return successor;
+    }
+}
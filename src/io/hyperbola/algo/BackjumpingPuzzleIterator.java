@@ -0,0 +1,290 @@
+package io.hyperbola.algo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import io.hyperbola.base.Assignment;
+import io.hyperbola.base.Board;
+import io.hyperbola.base.Dictionary;
+import io.hyperbola.base.Variable;
+import io.hyperbola.base.VariableSurveyResult;
+
+/**
+ * A puzzle iterator implementing DFS with forward checking and conflict-directed backjumping. Like {@link
+ * TrailPuzzleIterator}, a single mutable node is assigned in place and restored when the searching backtracks.
+ *
+ * Every expanded node keeps a conflict set, the assigned variables to blame for the failures of its offspring. When an
+ * assignment empties the domain of a neighbor, the assigned neighbors of that neighbor, which pruned its domain, are
+ * put into the conflict set. When all assignments of a node fail, the searching jumps back directly to the latest
+ * assigned variable in the conflict set, skipping the nodes in between since changing their assignments cannot help;
+ * the conflict set is then merged into that of the node jumped to.
+ *
+ * Once a solution is found under a node, it is not a dead end and its conflict set is incomplete; so the searching
+ * backtracks chronologically from such node. Hence all solutions are still found, in the same order as {@link
+ * TrailPuzzleIterator} finds them with forward checking. The assignments of an expanded node must be of the same
+ * variable, and the variables must be built by {@link Variable.Builder} so that they are given ids.
+ *
+ * Optionally, nogoods are learned. When all assignments of a node fail, the assignments of the variables in its
+ * conflict set can never be extended to a solution, so they are kept in a {@link NogoodStore}. An assignment completing
+ * a learned nogood is rejected before it is performed, and the other variables in such nogood are blamed; hence the
+ * same dead end met again under other assignments is not searched again.
+ */
+public class BackjumpingPuzzleIterator implements PuzzleIterator {
+
+    /**
+     * Ordered assignments of an expanded node, the trail mark to restore that node, and its conflict set.
+     */
+    private static final class Frame {
+
+        final List<Assignment> assignments;
+        final DomainFilterCache cache = new DomainFilterCache();
+        final BitSet conflicts = new BitSet(); // ids of the variables to blame
+        final int mark;
+        final Variable variable;               // the variable to be assigned; or null if no assignments
+        int cursor = 0;
+        boolean solved = false;                // whether a solution is found under this node
+
+        Frame(List<Assignment> assignments, int mark) {
+            this.assignments = assignments;
+            this.mark = mark;
+            this.variable = assignments.isEmpty()? null: assignments.get(0).variable;
+        }
+    }
+
+    private static final int MAX_NOGOOD_SIZE = 8; // larger nogoods are rarely violated again
+
+    private final Expander ea;
+    private final List<Frame> frames = new ArrayList<>();
+    private final int[] levels; // index of the frame assigning each variable; or -1 if unassigned
+    private final TrailNode node;
+    private final NogoodStore nogoods;      // null if not to learn nogoods
+    private long jumps = 0, skipped = 0;
+    private int maxSize = 1;
+    private boolean pending = true; // whether the node is waiting to be visited
+    private long step = 0;
+    private PartialSolution visited = PartialSolution.EMPTY;
+
+    /**
+     * Creates an iterator which learns no nogoods. Forward checking is always enabled.
+     * @param varSet     variables and board dimensions data
+     * @param dictionary dictionary to be used
+     * @param algorithm  expander determining the assignments of each node
+     * @throws IllegalArgumentException if the variables are not given ids by {@link Variable.Builder}
+     */
+    public BackjumpingPuzzleIterator(VariableSurveyResult varSet, Dictionary dictionary, Expander algorithm) {
+        this(varSet, dictionary, algorithm, 0);
+    }
+
+    /**
+     * Creates an iterator. Forward checking is always enabled.
+     * @param varSet         variables and board dimensions data
+     * @param dictionary     dictionary to be used
+     * @param algorithm      expander determining the assignments of each node
+     * @param nogoodCapacity max count of nogoods kept; or 0 not to learn nogoods
+     * @throws IllegalArgumentException if the variables are not given ids by {@link Variable.Builder}, or if the
+     *                                  capacity is negative
+     */
+    public BackjumpingPuzzleIterator(VariableSurveyResult varSet,
+                                     Dictionary dictionary,
+                                     Expander algorithm,
+                                     int nogoodCapacity) {
+        if (nogoodCapacity < 0) throw new IllegalArgumentException();
+        for (int i = 0; i < varSet.variables.size(); i++) {
+            if (varSet.variables.get(i).getId() != i) throw new IllegalArgumentException();
+        }
+        this.ea = algorithm;
+        this.node = new TrailNode(varSet, dictionary, true);
+        this.levels = new int[varSet.variables.size()];
+        this.nogoods = nogoodCapacity == 0? null: new NogoodStore(varSet, nogoodCapacity);
+        Arrays.fill(levels, -1);
+    }
+
+    /**
+     * Puts the assigned neighbors of a variable into a conflict set. They are the variables pruning its domain.
+     */
+    private void addPruners(Variable variable, BitSet conflicts) {
+        for (Variable n: variable.getNeighbors()) {
+            if (levels[n.getId()] >= 0) conflicts.set(n.getId());
+        }
+    }
+
+    /**
+     * Tries the remaining assignments of the latest frame until one of them is performed. The variables to blame for
+     * the rejected assignments are put into its conflict set.
+     * @return true if an assignment is performed; false if no assignments remain
+     */
+    private boolean advance(Frame f) {
+        Assignment a;
+        BitSet culprits;
+        Variable wipedOut;
+        while (f.cursor < f.assignments.size()) {
+            a = f.assignments.get(f.cursor++);
+            if (nogoods != null && (culprits = nogoods.find(a, node.peekPartialSolution())) != null) {
+                f.conflicts.or(culprits);
+                continue;
+            }
+            if (node.assign(a, f.cache)) {
+                levels[f.variable.getId()] = frames.size() - 1;
+                return true;
+            }
+            wipedOut = node.lastWipedOut();
+            ea.onEmptyDomain(a, wipedOut);
+            if (wipedOut == null) blameAll(f.conflicts);
+            else addPruners(wipedOut, f.conflicts);
+        }
+        return false;
+    }
+
+    /**
+     * Jumps back from the latest frame whose assignments are all tried, until an assignment is performed. If there is
+     * no frame to jump to, the searching ends.
+     */
+    private void backjump() {
+        Frame f = frames.get(frames.size() - 1), h;
+        int target;
+        while (true) {
+            if (f.solved) {
+                target = frames.size() - 2;
+            } else {
+                if (nogoods != null && !f.conflicts.isEmpty() && f.conflicts.cardinality() <= MAX_NOGOOD_SIZE) {
+                    nogoods.add(f.conflicts, node.peekPartialSolution());
+                }
+                target = -1;
+                for (int id = f.conflicts.nextSetBit(0); id >= 0; id = f.conflicts.nextSetBit(id + 1)) {
+                    target = Math.max(target, levels[id]);
+                }
+            }
+            // Drops the frames after the target
+            if (target < frames.size() - 2) {
+                jumps++;
+                skipped += frames.size() - 2 - target;
+            }
+            while (frames.size() > target + 1) {
+                h = frames.remove(frames.size() - 1);
+                if (h.variable != null) levels[h.variable.getId()] = -1;
+            }
+            if (target < 0) {
+                pending = false;
+                return;
+            }
+            h = frames.get(target);
+            if (f.solved) {
+                h.solved = true;
+            } else {
+                f.conflicts.clear(h.variable.getId());
+                h.conflicts.or(f.conflicts);
+            }
+            if (resume(h)) return;
+            f = h;
+        }
+    }
+
+    /**
+     * Puts all assigned variables into a conflict set. It is used if the cause of a failure is unknown.
+     */
+    private void blameAll(BitSet conflicts) {
+        for (int id = 0; id < levels.length; id++) {
+            if (levels[id] >= 0) conflicts.set(id);
+        }
+    }
+
+    /**
+     * Queries the count of jumps which skip at least one expanded node.
+     */
+    public long backjumpCount() {
+        return jumps;
+    }
+
+    @Override
+    public Board currentBoard() {
+        if (step == 0) return null;
+        return visited.toBoard(node.getBoardWidth(), node.getBoardHeight());
+    }
+
+    @Override
+    public boolean hasNext() {
+        return pending;
+    }
+
+    @Override
+    public int maxStackSize() {
+        return maxSize;
+    }
+
+    @Override
+    public int next() {
+        // If no node is pending, the searching is ended.
+        if (!pending) throw new IllegalStateException();
+
+        step++;
+        visited = node.peekPartialSolution();
+        if (node.isSolution()) {
+            Frame f = frames.get(frames.size() - 1);
+            f.solved = true;
+            if (!resume(f)) backjump();
+            return SOLUTION;
+        }
+
+        Frame f = new Frame(ea.assign(node), node.mark());
+        if (f.variable == null) {
+            // No variable is elected; it is unknown which variable to blame
+            blameAll(f.conflicts);
+        } else {
+            addPruners(f.variable, f.conflicts);
+            // Words dropped by the expander empty the domains of some neighbors
+            if (f.assignments.size() < node.peekDomainSizeOf(f.variable)) {
+                for (Variable n: node.peekUnassignedNeighborsOf(f.variable)) addPruners(n, f.conflicts);
+            }
+        }
+        frames.add(f);
+        if (advance(f)) {
+            maxSize = Math.max(maxSize, stackSize());
+            return UNKNOWN;
+        }
+        backjump();
+        return FAILURE;
+    }
+
+    /**
+     * Restores the node of a frame and performs its next assignment.
+     * @return true if an assignment is performed; false if no assignments remain
+     */
+    private boolean resume(Frame f) {
+        node.undo(f.mark);
+        levels[f.variable.getId()] = -1;
+        return advance(f);
+    }
+
+    /**
+     * Queries the count of assignments rejected by learned nogoods.
+     */
+    public long nogoodHitCount() {
+        return nogoods == null? 0: nogoods.hitCount();
+    }
+
+    /**
+     * Queries the count of nogoods learned, including those evicted from the store.
+     */
+    public long learnedNogoodCount() {
+        return nogoods == null? 0: nogoods.learnedCount();
+    }
+
+    /**
+     * Queries the count of expanded nodes skipped by jumps.
+     */
+    public long skippedNodeCount() {
+        return skipped;
+    }
+
+    @Override
+    public int stackSize() {
+        int size = pending? 1: 0;
+        for (Frame f: frames) size += f.assignments.size() - f.cursor;
+        return size;
+    }
+
+    @Override
+    public long step() {
+        return step;
+    }
+}
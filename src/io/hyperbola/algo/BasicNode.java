@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Map;
 import io.hyperbola.base.Assignment;
 import io.hyperbola.base.Dictionary;
+import io.hyperbola.base.Domain;
 import io.hyperbola.base.Variable;
 import io.hyperbola.base.VariableSurveyResult;
 
@@ -14,9 +15,9 @@ public class BasicNode extends AbstractNode {
 
     private final Assignment assignment;
     private final boolean forwardCheck;
-    private final List<Assignment> prevAssignments;
+    private final PartialSolution path; // assignments performed if the successor is unknown; or null
     private final BasicNode successor;
-    private final Map<Variable, List<String>> unassigned;
+    private final Map<Variable, Domain> unassigned;
     private final Map<Variable, List<Variable>> unassignedNeighbors;
     private final int wBoard, hBoard;
 
@@ -32,10 +33,36 @@ public class BasicNode extends AbstractNode {
         successor = null;
         wBoard = varSet.boardWidth;
         hBoard = varSet.boardHeight;
-        prevAssignments = List.of();
         unassigned = createRootVarDomainMap(varSet, dictionary);
         unassignedNeighbors = createRootVarNeighborsMap(varSet);
         forwardCheck = requireForwardCheck;
+        path = null;
+    }
+
+    /**
+     * Creates a node with the given state, whose successor is unknown. The maps are owned by the created node and must
+     * not be changed afterwards.
+     * @param unassigned          variable-domain map
+     * @param unassignedNeighbors variable-neighbors map
+     * @param path                assignments performed to reach such state
+     * @param wBoard              width of the board
+     * @param hBoard              height of the board
+     * @param requireForwardCheck set to true to enables forward checking in its offspring nodes
+     */
+    BasicNode(Map<Variable, Domain> unassigned,
+              Map<Variable, List<Variable>> unassignedNeighbors,
+              PartialSolution path,
+              int wBoard,
+              int hBoard,
+              boolean requireForwardCheck) {
+        this.assignment = path.assignment;
+        this.successor = null;
+        this.unassigned = unassigned;
+        this.unassignedNeighbors = unassignedNeighbors;
+        this.path = path;
+        this.wBoard = wBoard;
+        this.hBoard = hBoard;
+        this.forwardCheck = requireForwardCheck;
     }
 
     /**
@@ -44,20 +71,21 @@ public class BasicNode extends AbstractNode {
      * @param lastAssignment successor performs such assignment and then generates this node
      */
     private BasicNode(BasicNode parent, Assignment lastAssignment) {
-        Map<Variable, List<String>> unassignedVarDomainMap = new HashMap<>(parent.unassigned);
+        Map<Variable, Domain> unassignedVarDomainMap = new HashMap<>(parent.unassigned);
         Map<Variable, List<Variable>> unassignedVarNeighborsMap = new HashMap<>(parent.unassignedNeighbors);
         updateVarDomainAndVarNeighborsMap(lastAssignment,
                                           unassignedVarDomainMap,
                                           unassignedVarNeighborsMap,
-                                          parent.forwardCheck);
+                                          parent.forwardCheck,
+                                          parent.filterCache());
         successor = parent;
         assignment = lastAssignment;
         unassigned = unassignedVarDomainMap;
         unassignedNeighbors = unassignedVarNeighborsMap;
-        prevAssignments = appendList(successor.prevAssignments, successor.assignment);
         wBoard = successor.wBoard;
         hBoard = successor.hBoard;
         forwardCheck = successor.forwardCheck;
+        path = null;
     }
 
     @Override
@@ -65,6 +93,11 @@ public class BasicNode extends AbstractNode {
         return new BasicNode(this, assignment);
     }
 
+    @Override
+    PartialSolution peekPartialSolution() {
+        return path != null? path: super.peekPartialSolution();
+    }
+
     @Override
     protected int getBoardHeight() {
         return hBoard;
@@ -76,7 +109,7 @@ public class BasicNode extends AbstractNode {
     }
 
     @Override
-    protected Map<Variable, List<String>> peekUnassignedVariableDomainMap() {
+    protected Map<Variable, Domain> peekUnassignedVariableDomainMap() {
         return unassigned;
     }
 
@@ -0,0 +1,20 @@
+package io.hyperbola.algo;
+import io.hyperbola.base.Variable;
+import io.hyperbola.stream.Selector;
+
+public class BasicWeightedDegreeExpander extends WeightedDegreeExpander {
+
+    public BasicWeightedDegreeExpander(ConstraintWeights weights) {
+        super(weights);
+    }
+
+    @Override
+    protected Selector<Variable> findElect() {
+        return Selector.ORIGIN_CLOSEST_SELECTOR;
+    }
+
+    @Override
+    protected boolean randomSort() {
+        return false;
+    }
+}
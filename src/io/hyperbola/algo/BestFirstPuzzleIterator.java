@@ -0,0 +1,185 @@
+package io.hyperbola.algo;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.function.ToDoubleFunction;
+import io.hyperbola.base.Board;
+import io.hyperbola.base.Domain;
+import io.hyperbola.base.Variable;
+
+/**
+ * A puzzle iterator implementing memory-bounded best-first search. Instead of a stack, the nodes not visited yet are
+ * kept in a frontier ordered by a score, and the node having the highest score is visited next. Ties are broken in
+ * favor of the offspring of the node expanded latest, and then among siblings in the order given by the expander, so
+ * nodes having equal scores are visited in the same order as DFS does. All offspring of a node are built and scored
+ * when it is expanded.
+ *
+ * The frontier may be bounded by a capacity. Once it is exceeded, the node having the lowest score is dropped, so the
+ * memory used never grows beyond the capacity; the searching is then no longer complete, and solutions under dropped
+ * nodes are never found. The stack size is the size of the frontier.
+ */
+public class BestFirstPuzzleIterator implements PuzzleIterator {
+
+    /**
+     * A node in the frontier.
+     */
+    private static final class Entry implements Comparable<Entry> {
+
+        final long expansion;
+        final int index;
+        final AbstractNode node;
+        final double score;
+
+        /**
+         * @param expansion sequence number of the expansion generating such node
+         * @param index     index of such node among its siblings
+         */
+        Entry(AbstractNode node, double score, long expansion, int index) {
+            this.node = node;
+            this.score = score;
+            this.expansion = expansion;
+            this.index = index;
+        }
+
+        /**
+         * Higher score first; then the offspring of the latest expansion first; then the former sibling first.
+         */
+        @Override
+        public int compareTo(Entry o) {
+            int c = Double.compare(o.score, score);
+            if (c != 0) return c;
+            c = Long.compare(o.expansion, expansion);
+            return c != 0? c: Integer.compare(index, o.index);
+        }
+    }
+
+    /**
+     * Scores a node by the count of cells filled, a cell at a cross counting once. Nodes closer to a complete board are
+     * visited first.
+     */
+    public static final ToDoubleFunction<AbstractNode> FILLED_CELLS = node -> {
+        int cells = 0;
+        Variable v;
+        for (PartialSolution p = node.peekPartialSolution(); p.assignment != null; p = p.previous) {
+            v = p.assignment.variable;
+            cells += v.length();
+            for (Variable n: v.getNeighbors()) {
+                if (p.previous.wordOf(n) != null) cells--;
+            }
+        }
+        return cells;
+    };
+
+    /**
+     * Scores a node by the negated sum of the logarithms of the domain sizes of the unassigned variables, that is, the
+     * logarithm of the count of ways to fill them ignoring their crosses. Nodes leaving fewer ways to go, which are
+     * usually deeper, are visited first; a node with an empty domain scores negative infinity.
+     */
+    public static final ToDoubleFunction<AbstractNode> LOG_DOMAIN_SIZE_SUM = node -> {
+        double sum = 0;
+        for (Domain d: node.peekUnassignedVariableDomainMap().values()) {
+            if (d.isEmpty()) return Double.NEGATIVE_INFINITY;
+            sum += Math.log(d.size());
+        }
+        return -sum;
+    };
+
+    private final int capacity;
+    private final Expander ea;
+    private final TreeSet<Entry> frontier = new TreeSet<>();
+    private final ToDoubleFunction<AbstractNode> score;
+    private AbstractNode currentNode = null;
+    private long dropped = 0, step = 0;
+    private int maxSize = 0;
+
+    /**
+     * Creates an iterator with an unbounded frontier.
+     * @param root      root node
+     * @param algorithm expander determining the offspring of each node
+     * @param score     scores a node; the node having the highest score is visited first
+     */
+    public BestFirstPuzzleIterator(AbstractNode root, Expander algorithm, ToDoubleFunction<AbstractNode> score) {
+        this(root, algorithm, score, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates an iterator.
+     * @param root      root node
+     * @param algorithm expander determining the offspring of each node
+     * @param score     scores a node; the node having the highest score is visited first
+     * @param capacity  max count of nodes in the frontier
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public BestFirstPuzzleIterator(AbstractNode root,
+                                   Expander algorithm,
+                                   ToDoubleFunction<AbstractNode> score,
+                                   int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException();
+        this.ea = algorithm;
+        this.score = Objects.requireNonNull(score);
+        this.capacity = capacity;
+        offer(Objects.requireNonNull(root), 0);
+    }
+
+    @Override
+    public Board currentBoard() {
+        return currentNode == null? null: currentNode.getBoard();
+    }
+
+    /**
+     * Queries the count of nodes dropped from the frontier since the capacity is exceeded.
+     */
+    public long droppedCount() {
+        return dropped;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !frontier.isEmpty();
+    }
+
+    @Override
+    public int maxStackSize() {
+        return maxSize;
+    }
+
+    @Override
+    public int next() {
+        // If the frontier is empty, the searching is ended.
+        Entry best = frontier.pollFirst();
+        if (best == null) throw new IllegalStateException();
+
+        step++;
+        currentNode = best.node;
+        List<? extends AbstractNode> expanded = ea.expand(currentNode);
+        if (expanded.isEmpty()) {
+            return currentNode.isSolution()? SOLUTION: FAILURE;
+        }
+        for (int i = 0; i < expanded.size(); i++) offer(expanded.get(i), i);
+        return UNKNOWN;
+    }
+
+    /**
+     * Puts a node generated by the current expansion into the frontier, and drops the worst node if the capacity is
+     * exceeded.
+     * @param index index of such node among its siblings
+     */
+    private void offer(AbstractNode node, int index) {
+        frontier.add(new Entry(node, score.applyAsDouble(node), step, index));
+        if (frontier.size() > capacity) {
+            frontier.pollLast();
+            dropped++;
+        }
+        maxSize = Math.max(maxSize, frontier.size());
+    }
+
+    @Override
+    public int stackSize() {
+        return frontier.size();
+    }
+
+    @Override
+    public long step() {
+        return step;
+    }
+}
@@ -0,0 +1,355 @@
+package io.hyperbola.algo;
+import java.util.*;
+import io.hyperbola.base.Board;
+import io.hyperbola.base.Dictionary;
+import io.hyperbola.base.Variable;
+import io.hyperbola.base.VariableSurveyResult;
+import static io.hyperbola.algo.IntersectJudger.intersectAt;
+import static io.hyperbola.base.Dictionary.ALPHABET_SIZE;
+import static io.hyperbola.base.Dictionary.bitsetLength;
+import static io.hyperbola.base.Dictionary.letterIndex;
+
+/**
+ * A puzzle iterator implementing DFS with forward checking, ordered as {@link BasicThreeInOneExpander} with {@link
+ * ThreeInOneExpander#MRV_DGH_LCV} does, which allocates nothing on the heap once it is created. It visits the same
+ * nodes in the same order as a {@link DepthFirstPuzzleIterator} with such expander and forward checking, so the
+ * results, steps and stack sizes are identical; but neither nodes nor assignments are built.
+ *
+ * Variables and words are referred to by their ids. All the memory is allocated in advance and indexed by the depth,
+ * that is, the count of assigned variables: the domains at each depth as bitsets of word ids, and at each depth the
+ * elected variable, its words in the order to be tried and a cursor among them. Assigning a word fills the domains of
+ * the next depth, in which a domain not pruned refers to that of a former depth instead of being copied; backtracking
+ * to a depth just moves its cursor, since the domains of that depth are untouched. The LCV scores are counted in
+ * scratch buffers reused at every depth. Only {@link #currentBoard()} allocates, to build the board.
+ *
+ * The variables must be built by {@link Variable.Builder} so that they are given ids.
+ */
+public class CompactPuzzleIterator implements PuzzleIterator {
+
+    private static final int RADIX_BITS = 11;
+    private static final int RADIX = 1 << RADIX_BITS;
+
+    private final int[] assigned;          // [variable] -> word id; or -1 if unassigned
+    private final int[] buckets = new int[RADIX + 1];
+    private final int[][] crosses;         // [variable][k] -> index of the cross with the k-th neighbor in it
+    private final int[] degrees;           // [variable] -> count of unassigned neighbors
+    private final long[][][] domains;      // [depth][variable] -> bitset of word ids
+    private final int[] elected;           // [depth] -> variable elected; or -1 if all are assigned
+    private final int[][] histograms;      // [k][letter] -> count of words of the k-th neighbor, scratch
+    private final int hBoard, wBoard;
+    private final int[] lengths;           // [variable] -> length
+    private final byte[][] letters;        // [variable] -> letter indices, at [word id * length + position]
+    private final long[][][][] masks;      // [variable][k][letter] -> words of the k-th neighbor with such letter
+    private final int[][] neighborCrosses; // [variable][k] -> index of the cross in the k-th neighbor
+    private final int[][] neighbors;       // [variable][k] -> the k-th neighbor
+    private final int[][] orders;          // [depth] -> word ids of the elected variable in the order to be tried
+    private final int[] ranks;             // [variable] -> rank in the natural order of variables
+    private final int[] scores, scoreBuffer, idBuffer, unassignedNeighbors;
+    private final int[][] sizes, sources;  // [depth][variable] -> domain size, and the depth holding the domain
+    private final Variable[] variables;
+    private final String[][] words;        // [variable] -> words by id
+    private final int[] counts, cursors;   // [depth] -> count of words to be tried, and count of those tried
+    private int depth = 0, maxSize = 0, top = -1;
+    private boolean pending = true;        // whether the root is waiting to be visited
+    private long step = 0;
+
+    /**
+     * Creates an iterator. Forward checking is always enabled.
+     * @param varSet     variables and board dimensions data
+     * @param dictionary dictionary to be used
+     * @throws IllegalArgumentException if the variables are not given ids by {@link Variable.Builder}
+     */
+    public CompactPuzzleIterator(VariableSurveyResult varSet, Dictionary dictionary) {
+        int n = varSet.variables.size();
+        variables = varSet.variables.toArray(new Variable[0]);
+        for (int i = 0; i < n; i++) {
+            if (variables[i].getId() != i) throw new IllegalArgumentException();
+        }
+        wBoard = varSet.boardWidth;
+        hBoard = varSet.boardHeight;
+
+        // The words and letters of each length are shared by the variables of such length
+        Map<Integer, String[]> wordsByLength = new HashMap<>();
+        Map<Integer, byte[]> lettersByLength = new HashMap<>();
+        lengths = new int[n];
+        words = new String[n][];
+        letters = new byte[n][];
+        int maxWords = 0;
+        for (int v = 0; v < n; v++) {
+            int length = variables[v].length();
+            lengths[v] = length;
+            words[v] = wordsByLength.computeIfAbsent(length,
+                                                     k -> dictionary.getWordsByLength(k).toArray(new String[0]));
+            letters[v] = lettersByLength.computeIfAbsent(length, k -> {
+                String[] w = wordsByLength.get(k);
+                byte[] l = new byte[w.length * k];
+                for (int id = 0; id < w.length; id++) {
+                    for (int p = 0; p < k; p++) l[id * k + p] = (byte) letterIndex(w[id].charAt(p));
+                }
+                return l;
+            });
+            maxWords = Math.max(maxWords, words[v].length);
+        }
+
+        // Crosses
+        neighbors = new int[n][];
+        crosses = new int[n][];
+        neighborCrosses = new int[n][];
+        masks = new long[n][][][];
+        degrees = new int[n];
+        int maxDegree = 0;
+        for (int v = 0; v < n; v++) {
+            List<Variable> ns = variables[v].getNeighbors();
+            int m = ns.size();
+            neighbors[v] = new int[m];
+            crosses[v] = new int[m];
+            neighborCrosses[v] = new int[m];
+            masks[v] = new long[m][][];
+            for (int k = 0; k < m; k++) {
+                Variable u = ns.get(k);
+                neighbors[v][k] = u.getId();
+                crosses[v][k] = intersectAt(variables[v], u);
+                neighborCrosses[v][k] = intersectAt(u, variables[v]);
+                masks[v][k] = new long[ALPHABET_SIZE][];
+                for (int l = 0; l < ALPHABET_SIZE; l++) {
+                    masks[v][k][l] = dictionary.peekWordsWithLetterAt(u.length(),
+                                                                      neighborCrosses[v][k],
+                                                                      (char) ('A' + l));
+                }
+            }
+            degrees[v] = m;
+            maxDegree = Math.max(maxDegree, m);
+        }
+        Variable[] sorted = variables.clone();
+        Arrays.sort(sorted);
+        ranks = new int[n];
+        for (int r = 0; r < n; r++) ranks[sorted[r].getId()] = r;
+
+        // Memory of each depth
+        domains = new long[n + 1][n][];
+        sizes = new int[n + 1][n];
+        sources = new int[n + 1][n];
+        orders = new int[n + 1][maxWords];
+        for (int d = 0; d <= n; d++) {
+            for (int v = 0; v < n; v++) domains[d][v] = new long[bitsetLength(words[v].length)];
+        }
+        for (int v = 0; v < n; v++) {
+            for (int id = 0; id < words[v].length; id++) domains[0][v][id >>> 6] |= 1L << id;
+            sizes[0][v] = words[v].length;
+        }
+        elected = new int[n + 1];
+        counts = new int[n + 1];
+        cursors = new int[n + 1];
+        assigned = new int[n];
+        Arrays.fill(assigned, -1);
+        histograms = new int[maxDegree][ALPHABET_SIZE];
+        unassignedNeighbors = new int[maxDegree];
+        scores = new int[maxWords];
+        scoreBuffer = new int[maxWords];
+        idBuffer = new int[maxWords];
+    }
+
+    /**
+     * Assigns the next word to the variable elected at a depth, whose former assignment and all deeper ones must be
+     * undone, and fills the domains of the next depth.
+     */
+    private void assign(int d) {
+        int v = elected[d], w = orders[d][cursors[d]++], u, letter, size;
+        long[] from, to, mask;
+        assigned[v] = w;
+        depth = d + 1;
+        System.arraycopy(sources[d], 0, sources[depth], 0, sources[d].length);
+        System.arraycopy(sizes[d], 0, sizes[depth], 0, sizes[d].length);
+        for (int k = 0; k < neighbors[v].length; k++) {
+            u = neighbors[v][k];
+            if (assigned[u] >= 0) continue;
+            degrees[u]--;
+            letter = letters[v][w * lengths[v] + crosses[v][k]];
+            from = domains[sources[d][u]][u];
+            to = domains[depth][u];
+            mask = masks[v][k][letter];
+            size = 0;
+            for (int b = 0; b < to.length; b++) {
+                to[b] = from[b] & mask[b];
+                size += Long.bitCount(to[b]);
+            }
+            sources[depth][u] = depth;
+            sizes[depth][u] = size;
+        }
+    }
+
+    @Override
+    public Board currentBoard() {
+        if (step == 0) return null;
+        Board b = new Board(wBoard, hBoard);
+        Variable v;
+        String w;
+        for (int d = 0; d < depth; d++) {
+            v = variables[elected[d]];
+            w = words[elected[d]][assigned[elected[d]]];
+            if (v.getDirection() == Variable.HORIZONTAL) b.fillHorizontal(v.getX(), v.getY(), w);
+            else b.fillVertical(v.getX(), v.getY(), w);
+        }
+        return b;
+    }
+
+    /**
+     * Elects the unassigned variable having fewest words, then most unassigned neighbors, then the closest to the
+     * origin point.
+     * @return the variable; or -1 if all variables are assigned
+     */
+    private int elect(int d) {
+        int best = -1;
+        for (int v = 0; v < variables.length; v++) {
+            if (assigned[v] >= 0) continue;
+            if (best < 0 || sizes[d][v] < sizes[d][best]
+                || sizes[d][v] == sizes[d][best] && (degrees[v] > degrees[best]
+                                                     || degrees[v] == degrees[best] && ranks[v] < ranks[best])) {
+                best = v;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return pending || top >= 0;
+    }
+
+    @Override
+    public int maxStackSize() {
+        return maxSize;
+    }
+
+    @Override
+    public int next() {
+        if (pending) {
+            pending = false;
+            return visit(0);
+        }
+        // If no words remain at any depth, the searching is ended.
+        if (top < 0) throw new IllegalStateException();
+        for (int d = depth - 1; d >= top; d--) unassign(d);
+        assign(top);
+        return visit(depth);
+    }
+
+    /**
+     * Orders the words of the variable elected at a depth by LCV. Words emptying the domain of some unassigned
+     * neighbor are skipped, as forward checking does.
+     * @return the count of words to be tried
+     */
+    private int order(int d) {
+        int v = elected[d], m = 0, u, k, p, id, score, passed, letter, count = 0;
+        long[] domain;
+        long bits;
+        // Counts the words of each unassigned neighbor by the letter at the cross
+        for (k = 0; k < neighbors[v].length; k++) {
+            u = neighbors[v][k];
+            if (assigned[u] >= 0) continue;
+            Arrays.fill(histograms[m], 0);
+            domain = domains[sources[d][u]][u];
+            p = neighborCrosses[v][k];
+            for (int b = 0; b < domain.length; b++) {
+                for (bits = domain[b]; bits != 0; bits &= bits - 1) {
+                    id = b << 6 | Long.numberOfTrailingZeros(bits);
+                    letter = letters[u][id * lengths[u] + p];
+                    if (letter >= 0) histograms[m][letter]++;
+                }
+            }
+            unassignedNeighbors[m++] = k;
+        }
+        // Scores each word
+        int[] order = orders[d];
+        domain = domains[sources[d][v]][v];
+        for (int b = 0; b < domain.length; b++) {
+            next:
+            for (bits = domain[b]; bits != 0; bits &= bits - 1) {
+                id = b << 6 | Long.numberOfTrailingZeros(bits);
+                score = 0;
+                for (int i = 0; i < m; i++) {
+                    letter = letters[v][id * lengths[v] + crosses[v][unassignedNeighbors[i]]];
+                    passed = letter < 0? 0: histograms[i][letter];
+                    if (passed == 0) continue next;
+                    score += passed;
+                }
+                order[count] = id;
+                scores[count++] = score;
+            }
+        }
+        sortByScore(order, count);
+        return count;
+    }
+
+    /**
+     * Stably sorts the first n word ids by their scores in ascending order, by the same LSD radix sort as {@link
+     * LeastConstrainingValueExpander} does.
+     */
+    private void sortByScore(int[] ids, int n) {
+        if (n < 2) return;
+        int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            min = Math.min(min, scores[i]);
+            max = Math.max(max, scores[i]);
+        }
+        int range = max - min;
+        if (range == 0) return;
+        int radix = Math.min(RADIX, Integer.highestOneBit(range) << 1);
+        int[] w = ids, wBuf = idBuffer, c = scores, cBuf = scoreBuffer, tmp;
+        for (int shift = 0; shift < Integer.SIZE && (range >>> shift) != 0; shift += RADIX_BITS) {
+            Arrays.fill(buckets, 0, radix + 1, 0);
+            for (int i = 0; i < n; i++) buckets[((c[i] - min) >>> shift & (radix - 1)) + 1]++;
+            for (int i = 1; i <= radix; i++) buckets[i] += buckets[i - 1];
+            for (int i = 0, d; i < n; i++) {
+                d = buckets[(c[i] - min) >>> shift & (radix - 1)]++;
+                wBuf[d] = w[i];
+                cBuf[d] = c[i];
+            }
+            tmp = w;
+            w = wBuf;
+            wBuf = tmp;
+            tmp = c;
+            c = cBuf;
+            cBuf = tmp;
+        }
+        if (w != ids) System.arraycopy(w, 0, ids, 0, n);
+    }
+
+    @Override
+    public int stackSize() {
+        int size = pending? 1: 0;
+        for (int d = 0; d <= depth && !pending; d++) size += counts[d] - cursors[d];
+        return size;
+    }
+
+    @Override
+    public long step() {
+        return step;
+    }
+
+    /**
+     * Undoes the assignment of the variable elected at a depth.
+     */
+    private void unassign(int d) {
+        int v = elected[d];
+        for (int u: neighbors[v]) {
+            if (assigned[u] < 0) degrees[u]++;
+        }
+        assigned[v] = -1;
+    }
+
+    /**
+     * Visits the node at a depth: elects a variable and orders its words.
+     */
+    private int visit(int d) {
+        step++;
+        elected[d] = elect(d);
+        cursors[d] = 0;
+        counts[d] = elected[d] < 0? 0: order(d);
+        for (top = d; top >= 0 && cursors[top] == counts[top]; ) top--;
+        if (elected[d] < 0) return SOLUTION;
+        if (counts[d] == 0) return FAILURE;
+        maxSize = Math.max(maxSize, stackSize());
+        return UNKNOWN;
+    }
+}
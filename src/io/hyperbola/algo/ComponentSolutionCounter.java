@@ -0,0 +1,151 @@
+package io.hyperbola.algo;
+import java.util.*;
+import io.hyperbola.base.Assignment;
+import io.hyperbola.base.Variable;
+import io.hyperbola.stream.LayerFilterer;
+import io.hyperbola.stream.Selector;
+import static io.hyperbola.algo.DegreeHeuristicExpander.DEGREE_HEURISTIC_FILTER;
+import static io.hyperbola.algo.MinimumRemainingValueExpander.MINIMUM_REMAINING_VALUE_FILTER;
+
+/**
+ * Counts the solutions of a puzzle by splitting it into independent subproblems. The unassigned variables are divided
+ * into connected components, two variables being connected if they cross each other. An assignment in a component
+ * never affects the domains of the others, so the count of solutions is the product of the counts of all components.
+ * A component is counted by assigning each word in the domain of a variable elected in it; after the assignment, the
+ * rest of the component still unassigned is divided into components again, which are counted in the same way. Hence a
+ * puzzle falling into independent parts is counted by adding up the work of the parts instead of multiplying it. A
+ * node such as {@link Ac3Node} may fill in the variables left with a single word on expansion; such variables have a
+ * single solution, so they are simply left out of the rest.
+ *
+ * Solutions are counted rather than enumerated, so neither boards nor the nodes of solutions are built. Forward
+ * checking makes no difference in the counts, but dead ends are found earlier if it is enabled on the root.
+ */
+public class ComponentSolutionCounter {
+
+    /**
+     * Elects the variable having fewest legal values. Ties are broken by the degree heuristic and then by {@link
+     * Selector#ORIGIN_CLOSEST_SELECTOR}.
+     */
+    public static final Selector<Variable> MRV_DGH_SELECTOR
+            = new LayerFilterer<Variable>().then(MINIMUM_REMAINING_VALUE_FILTER)
+                                           .then(DEGREE_HEURISTIC_FILTER)
+                                           .compile(Selector.ORIGIN_CLOSEST_SELECTOR);
+
+    /**
+     * Divides variables into connected components.
+     * @param variables unassigned variables, which must contain all unassigned neighbors of each of them
+     * @param node      the node where such variables are unassigned
+     */
+    static List<List<Variable>> componentsOf(Collection<Variable> variables, AbstractNode node) {
+        List<List<Variable>> components = new ArrayList<>();
+        Set<Variable> unvisited = new HashSet<>(variables);
+        Deque<Variable> queue = new ArrayDeque<>();
+        List<Variable> component;
+        Variable v;
+        for (Variable start: variables) {
+            if (!unvisited.remove(start)) continue;
+            component = new ArrayList<>();
+            queue.add(start);
+            while ((v = queue.poll()) != null) {
+                component.add(v);
+                for (Variable n: node.peekUnassignedNeighborsOf(v)) {
+                    if (unvisited.remove(n)) queue.add(n);
+                }
+            }
+            components.add(component);
+        }
+        return components;
+    }
+
+    private final AbstractNode root;
+    private final Selector<Variable> selector;
+    private long splits = 0, step = 0;
+
+    /**
+     * Creates a counter electing variables by {@link #MRV_DGH_SELECTOR}.
+     * @param root root node
+     */
+    public ComponentSolutionCounter(AbstractNode root) {
+        this(root, MRV_DGH_SELECTOR);
+    }
+
+    /**
+     * Creates a counter.
+     * @param root     root node
+     * @param selector elects the variable to be assigned among the variables of a component
+     */
+    public ComponentSolutionCounter(AbstractNode root, Selector<Variable> selector) {
+        this.root = Objects.requireNonNull(root);
+        this.selector = Objects.requireNonNull(selector);
+    }
+
+    /**
+     * Counts the solutions.
+     * @throws ArithmeticException if the count overflows a long
+     */
+    public long count() {
+        splits = 0;
+        step = 0;
+        return countComponents(root.peekUnassignedVariables(), root);
+    }
+
+    /**
+     * Counts the solutions of a component. Subclasses may override this method to avoid counting the same component
+     * again.
+     * @param component unassigned variables forming a connected component
+     * @param node      the node where such variables are unassigned
+     */
+    protected long countComponent(List<Variable> component, AbstractNode node) {
+        Variable elect = selector.select(component, node);
+        List<Variable> rest = new ArrayList<>(component.size());
+        Set<Variable> unassigned;
+        AbstractNode offspring;
+        long count = 0;
+        for (String word: node.peekDomainOf(elect)) {
+            try {offspring = node.expand(new Assignment(word, elect));}
+            catch (EmptyDomainException e) {continue;}
+            step++;
+            // Some nodes fill in other variables besides the elect, which are not counted again
+            unassigned = offspring.peekUnassignedVariables();
+            rest.clear();
+            for (Variable v: component) {
+                if (unassigned.contains(v)) rest.add(v);
+            }
+            count = Math.addExact(count, countComponents(rest, offspring));
+        }
+        node.releaseFilterCache();
+        return count;
+    }
+
+    /**
+     * Divides variables into connected components and multiplies their counts of solutions. A component of a single
+     * variable has as many solutions as the words in its domain, so no nodes are built for it.
+     * @param variables unassigned variables, which must contain all unassigned neighbors of each of them
+     * @param node      the node where such variables are unassigned
+     */
+    private long countComponents(Collection<Variable> variables, AbstractNode node) {
+        List<List<Variable>> components = componentsOf(variables, node);
+        if (components.size() > 1) splits++;
+        long count = 1;
+        for (List<Variable> c: components) {
+            if (c.size() == 1) count = Math.multiplyExact(count, node.peekDomainSizeOf(c.get(0)));
+            else count = Math.multiplyExact(count, countComponent(c, node));
+            if (count == 0) break;
+        }
+        return count;
+    }
+
+    /**
+     * Queries the count of times the variables fall into more than one component in the last counting.
+     */
+    public long splitCount() {
+        return splits;
+    }
+
+    /**
+     * Queries the count of nodes built in the last counting.
+     */
+    public long step() {
+        return step;
+    }
+}
@@ -0,0 +1,124 @@
+package io.hyperbola.algo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import io.hyperbola.base.Assignment;
+import io.hyperbola.base.Variable;
+import io.hyperbola.base.VariableSurveyResult;
+import io.hyperbola.stream.Filterer;
+import io.hyperbola.stream.LayerFilterer;
+import io.hyperbola.stream.Selector;
+
+/**
+ * Weights of the constraints, that is, the crosses between variables, learned during a searching. Every weight starts
+ * from one and is bumped whenever the constraint empties the domain of a variable. The weighted degree of a variable is
+ * the sum of weights of the constraints between it and its unassigned neighbors, and the dom/wdeg heuristic prefers
+ * the variable having the least ratio of domain size to weighted degree; thus variables involved in failures are
+ * assigned earlier.
+ *
+ * The weights belong to a searching, or to successive searchings which should share what they learned, so an instance
+ * should not be shared by unrelated searchings. This class is not thread-safe.
+ */
+public class ConstraintWeights {
+
+    private final int[][] weights; // [variable id][index of neighbor] -> weight
+
+    /**
+     * Creates weights all of which are one.
+     * @param varSet variables of the puzzle, which must be given ids by {@link Variable.Builder}
+     * @throws IllegalArgumentException if the variables are not given ids
+     */
+    public ConstraintWeights(VariableSurveyResult varSet) {
+        weights = new int[varSet.variables.size()][];
+        Variable v;
+        for (int i = 0; i < weights.length; i++) {
+            v = varSet.variables.get(i);
+            if (v.getId() != i) throw new IllegalArgumentException();
+            weights[i] = new int[v.getNeighborCount()];
+            Arrays.fill(weights[i], 1);
+        }
+    }
+
+    /**
+     * Bumps the weight of the constraint between two variables.
+     * @throws IllegalArgumentException if the variables do not cross
+     */
+    public void bump(Variable a, Variable b) {
+        int i = a.getNeighbors().indexOf(b), j = b.getNeighbors().indexOf(a);
+        if (i < 0 || j < 0) throw new IllegalArgumentException();
+        weights[a.getId()][i]++;
+        weights[b.getId()][j]++;
+    }
+
+    /**
+     * Learns from an assignment rejected since the domain of a variable becomes empty. If such variable crosses the
+     * assigned one, the constraint between them is bumped; otherwise, the domain is emptied by propagation, and all the
+     * constraints of such variable are bumped.
+     * @param variable the variable found to be with an empty domain; or null if it is unknown, in which case nothing
+     *                 is learned
+     */
+    public void onEmptyDomain(Assignment assignment, Variable variable) {
+        if (variable == null) return;
+        if (variable.getNeighbors().contains(assignment.variable)) {
+            bump(assignment.variable, variable);
+            return;
+        }
+        for (Variable n: variable.getNeighbors()) bump(variable, n);
+    }
+
+    /**
+     * Queries the weight of the constraint between two variables.
+     * @return the weight; or 0 if the variables do not cross
+     */
+    public int weightOf(Variable a, Variable b) {
+        int i = a.getNeighbors().indexOf(b);
+        return i < 0? 0: weights[a.getId()][i];
+    }
+
+    /**
+     * Queries the sum of weights of the constraints between a variable and its unassigned neighbors.
+     */
+    public int weightedDegreeOf(Variable variable, AbstractNode node) {
+        List<Variable> neighbors = variable.getNeighbors();
+        int[] w = weights[variable.getId()];
+        int wdeg = 0;
+        for (Variable n: node.peekUnassignedNeighborsOf(variable)) wdeg += w[neighbors.indexOf(n)];
+        return wdeg;
+    }
+
+    /**
+     * Queries a filter that selects variables having the least ratio of domain size to weighted degree. A variable
+     * without unassigned neighbors is considered to have an infinite ratio; if no variable has unassigned neighbors,
+     * variables having minimum domain size are selected.
+     */
+    public Filterer<Variable> filter() {
+        return (candidates, successor) -> {
+            List<Variable> passed = new ArrayList<>();
+            long minDom = Long.MAX_VALUE, minWdeg = 0, dom, wdeg, cmp;
+            for (Variable v: candidates) {
+                dom = successor.peekDomainSizeOf(v);
+                wdeg = weightedDegreeOf(v, successor);
+                // Compares dom / wdeg with minDom / minWdeg
+                if (passed.isEmpty()) cmp = -1;
+                else if (wdeg == 0 || minWdeg == 0) cmp = wdeg == minWdeg? Long.compare(dom, minDom): wdeg == 0? 1: -1;
+                else cmp = Long.compare(dom * minWdeg, minDom * wdeg);
+                if (cmp > 0) continue;
+                if (cmp < 0) {
+                    minDom = dom;
+                    minWdeg = wdeg;
+                    passed.clear();
+                }
+                passed.add(v);
+            }
+            return passed;
+        };
+    }
+
+    /**
+     * Queries a selector that picks the variable having the least ratio of domain size to weighted degree. Ties are
+     * broken by {@link Selector#ORIGIN_CLOSEST_SELECTOR}.
+     */
+    public Selector<Variable> selector() {
+        return new LayerFilterer<Variable>().then(filter()).compile(Selector.ORIGIN_CLOSEST_SELECTOR);
+    }
+}
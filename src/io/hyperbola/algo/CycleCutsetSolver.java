@@ -0,0 +1,300 @@
+package io.hyperbola.algo;
+import java.util.*;
+import io.hyperbola.base.Assignment;
+import io.hyperbola.base.Board;
+import io.hyperbola.base.Variable;
+import io.hyperbola.stream.Selector;
+import static io.hyperbola.algo.ComponentSolutionCounter.componentsOf;
+import static io.hyperbola.algo.IntersectJudger.intersectAt;
+import static io.hyperbola.base.Dictionary.ALPHABET_SIZE;
+import static io.hyperbola.base.Dictionary.letterIndex;
+
+/**
+ * Solves a puzzle by cycle cutset conditioning. A cycle cutset is a set of variables whose removal leaves the crosses
+ * between the other variables without cycles, that is, a forest. The variables in the cutset are assigned by DFS with
+ * forward checking; once all of them are assigned, the other variables form a forest, which is solved without
+ * searching:
+ *
+ * Step (1): Roots each tree at some variable, and visits the variables from the leaves to the root. The count of ways
+ * to complete the subtree of a variable, given a word assigned to it, is the product over its children of the counts
+ * of the words of each child having the same letter at the cross. A word whose count is zero cannot be extended to its
+ * subtree and is effectively removed; this is directional arc consistency.
+ *
+ * Step (2): The count of the tree is the sum of the counts of the words of its root, and the count of the forest is
+ * the product of the counts of its trees.
+ *
+ * Step (3): To find a solution, a word with non-zero count is assigned to each root, and then from the root to the
+ * leaves, each variable is assigned a word with non-zero count having the same letter as its parent at the cross. No
+ * backtracking is needed.
+ *
+ * Hence the searching is exponential only in the size of the cutset rather than in the count of variables, which pays
+ * off on sparse grids. Words having a character other than A-Z at a cross never match any word.
+ *
+ * A node such as {@link Ac3Node} may fill in the variables left with a single word on expansion. Such variables in the
+ * cutset are not elected again, and such variables in a tree are not assigned again when the solution is built; the
+ * word filled in is the only one left, so it is the same as in the solution.
+ */
+public class CycleCutsetSolver {
+
+    /**
+     * The words of the variables in a tree and the counts of ways to complete their subtrees.
+     */
+    private static final class Tree {
+
+        final long[][] counts;   // [index in order][index of word] -> count of ways to complete the subtree
+        final Variable[] order;  // variables from the root to the leaves
+        final int[] parents;     // [index in order] -> index of the parent; or -1 for the root
+        final String[][] words;  // [index in order] -> words in the domain
+        long count = 0;
+
+        Tree(Variable root, AbstractNode node) {
+            List<Variable> visited = new ArrayList<>();
+            List<Integer> parentList = new ArrayList<>();
+            Map<Variable, Integer> indices = new HashMap<>();
+            visited.add(root);
+            parentList.add(-1);
+            indices.put(root, 0);
+            for (int i = 0; i < visited.size(); i++) {
+                for (Variable n: node.peekUnassignedNeighborsOf(visited.get(i))) {
+                    if (indices.containsKey(n)) continue;
+                    indices.put(n, visited.size());
+                    visited.add(n);
+                    parentList.add(i);
+                }
+            }
+            int size = visited.size();
+            order = visited.toArray(new Variable[0]);
+            parents = new int[size];
+            words = new String[size][];
+            counts = new long[size][];
+            for (int i = 0; i < size; i++) {
+                parents[i] = parentList.get(i);
+                words[i] = node.peekDomainOf(order[i]).toArray(new String[0]);
+                counts[i] = new long[words[i].length];
+                Arrays.fill(counts[i], 1);
+            }
+
+            // Step (1): from the leaves to the root
+            long[] message;
+            int p, atChild, atParent, l;
+            for (int i = size - 1; i > 0; i--) {
+                p = parents[i];
+                atChild = intersectAt(order[i], order[p]);
+                atParent = intersectAt(order[p], order[i]);
+                message = new long[ALPHABET_SIZE];
+                for (int w = 0; w < words[i].length; w++) {
+                    l = letterIndex(words[i][w].charAt(atChild));
+                    if (l >= 0) message[l] = Math.addExact(message[l], counts[i][w]);
+                }
+                for (int w = 0; w < words[p].length; w++) {
+                    if (counts[p][w] == 0) continue;
+                    l = letterIndex(words[p][w].charAt(atParent));
+                    counts[p][w] = l < 0? 0: Math.multiplyExact(counts[p][w], message[l]);
+                }
+            }
+
+            // Step (2)
+            for (long c: counts[0]) count = Math.addExact(count, c);
+        }
+
+        /**
+         * Step (3): assigns a word to each variable, from the root to the leaves. The count must be non-zero.
+         */
+        List<Assignment> solution() {
+            String[] assigned = new String[order.length];
+            List<Assignment> solution = new ArrayList<>(order.length);
+            int p, atChild;
+            char letter;
+            for (int i = 0; i < order.length; i++) {
+                p = parents[i];
+                atChild = p < 0? 0: intersectAt(order[i], order[p]);
+                letter = p < 0? 0: assigned[p].charAt(intersectAt(order[p], order[i]));
+                for (int w = 0; w < words[i].length; w++) {
+                    if (counts[i][w] == 0 || p >= 0 && words[i][w].charAt(atChild) != letter) continue;
+                    assigned[i] = words[i][w];
+                    break;
+                }
+                assert assigned[i] != null;
+                solution.add(new Assignment(assigned[i], order[i]));
+            }
+            return solution;
+        }
+    }
+
+    /**
+     * Picks a cycle cutset greedily. Variables crossing at most one other variable are on no cycles and are removed
+     * repeatedly; then the variable crossing the most others is put into the cutset and removed, until no variables
+     * remain.
+     * @param variables unassigned variables, which must contain all unassigned neighbors of each of them
+     * @param node      the node where such variables are unassigned
+     * @return the cutset, in the order the variables are picked
+     */
+    static List<Variable> cycleCutsetOf(Collection<Variable> variables, AbstractNode node) {
+        Map<Variable, Set<Variable>> graph = new LinkedHashMap<>();
+        for (Variable v: variables) graph.put(v, new HashSet<>(node.peekUnassignedNeighborsOf(v)));
+        List<Variable> cutset = new ArrayList<>();
+        Deque<Variable> removable = new ArrayDeque<>();
+        Variable elect;
+        while (true) {
+            for (Map.Entry<Variable, Set<Variable>> e: graph.entrySet()) {
+                if (e.getValue().size() <= 1) removable.add(e.getKey());
+            }
+            while ((elect = removable.poll()) != null) {
+                for (Variable n: remove(graph, elect)) {
+                    if (graph.get(n).size() == 1) removable.add(n);
+                }
+            }
+            if (graph.isEmpty()) return cutset;
+            elect = null;
+            for (Map.Entry<Variable, Set<Variable>> e: graph.entrySet()) {
+                if (elect == null || e.getValue().size() > graph.get(elect).size()) elect = e.getKey();
+            }
+            remove(graph, elect);
+            cutset.add(elect);
+        }
+    }
+
+    /**
+     * Removes a variable from a graph.
+     * @return the neighbors of such variable which are still in the graph
+     */
+    private static Set<Variable> remove(Map<Variable, Set<Variable>> graph, Variable variable) {
+        Set<Variable> neighbors = graph.remove(variable);
+        if (neighbors == null) return Set.of();
+        for (Variable n: neighbors) graph.get(n).remove(variable);
+        return neighbors;
+    }
+
+    /**
+     * Queries the variables which are still unassigned in a node.
+     * @return a new list of such variables, in the same order
+     */
+    private static List<Variable> unassignedOf(List<Variable> variables, AbstractNode node) {
+        Set<Variable> unassigned = node.peekUnassignedVariables();
+        List<Variable> rest = new ArrayList<>(variables.size());
+        for (Variable v: variables) {
+            if (unassigned.contains(v)) rest.add(v);
+        }
+        return rest;
+    }
+
+    private final List<Variable> cutset;
+    private final AbstractNode root;
+    private final Selector<Variable> selector;
+    private long step = 0;
+
+    /**
+     * Creates a solver electing variables in the cutset by {@link ComponentSolutionCounter#MRV_DGH_SELECTOR}.
+     * @param root root node
+     */
+    public CycleCutsetSolver(AbstractNode root) {
+        this(root, ComponentSolutionCounter.MRV_DGH_SELECTOR);
+    }
+
+    /**
+     * Creates a solver.
+     * @param root     root node
+     * @param selector elects the variable to be assigned among the unassigned variables in the cutset
+     */
+    public CycleCutsetSolver(AbstractNode root, Selector<Variable> selector) {
+        this.root = Objects.requireNonNull(root);
+        this.selector = Objects.requireNonNull(selector);
+        this.cutset = List.copyOf(cycleCutsetOf(root.peekUnassignedVariables(), root));
+    }
+
+    /**
+     * Counts the solutions.
+     * @throws ArithmeticException if the count overflows a long
+     */
+    public long count() {
+        step = 0;
+        return count(root, cutset);
+    }
+
+    /**
+     * Counts the solutions under a node.
+     * @param unassigned the variables in the cutset which are unassigned in such node
+     */
+    private long count(AbstractNode node, List<Variable> unassigned) {
+        if (unassigned.isEmpty()) {
+            long count = 1;
+            for (List<Variable> c: componentsOf(node.peekUnassignedVariables(), node)) {
+                count = Math.multiplyExact(count, new Tree(c.get(0), node).count);
+                if (count == 0) break;
+            }
+            return count;
+        }
+        Variable elect = selector.select(unassigned, node);
+        AbstractNode offspring;
+        long count = 0;
+        for (String word: node.peekDomainOf(elect)) {
+            try {offspring = node.expand(new Assignment(word, elect));}
+            catch (EmptyDomainException e) {continue;}
+            step++;
+            count = Math.addExact(count, count(offspring, unassignedOf(unassigned, offspring)));
+        }
+        node.releaseFilterCache();
+        return count;
+    }
+
+    /**
+     * Queries the cycle cutset.
+     * @return an unmodifiable list
+     */
+    public List<Variable> getCutset() {
+        return cutset;
+    }
+
+    /**
+     * Finds a solution.
+     * @return the board of the solution; or null if there are no solutions
+     */
+    public Board solve() {
+        step = 0;
+        AbstractNode solution = solve(root, cutset);
+        return solution == null? null: solution.getBoard();
+    }
+
+    /**
+     * Finds a solution under a node.
+     * @param unassigned the variables in the cutset which are unassigned in such node
+     * @return the node of the solution; or null if there are no solutions under such node
+     */
+    private AbstractNode solve(AbstractNode node, List<Variable> unassigned) {
+        if (unassigned.isEmpty()) {
+            List<Tree> forest = new ArrayList<>();
+            Tree t;
+            for (List<Variable> c: componentsOf(node.peekUnassignedVariables(), node)) {
+                t = new Tree(c.get(0), node);
+                if (t.count == 0) return null;
+                forest.add(t);
+            }
+            for (Tree tree: forest) {
+                for (Assignment a: tree.solution()) {
+                    // The variable may be filled in by a former expansion
+                    if (!node.peekUnassignedVariables().contains(a.variable)) continue;
+                    node = node.expand(a);
+                    step++;
+                }
+            }
+            return node;
+        }
+        Variable elect = selector.select(unassigned, node);
+        AbstractNode offspring, solution;
+        for (String word: node.peekDomainOf(elect)) {
+            try {offspring = node.expand(new Assignment(word, elect));}
+            catch (EmptyDomainException e) {continue;}
+            step++;
+            solution = solve(offspring, unassignedOf(unassigned, offspring));
+            if (solution != null) return solution;
+        }
+        return null;
+    }
+
+    /**
+     * Queries the count of nodes built in the last counting or solving.
+     */
+    public long step() {
+        return step;
+    }
+}
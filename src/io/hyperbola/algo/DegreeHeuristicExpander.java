@@ -1,10 +1,9 @@
 package io.hyperbola.algo;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import io.hyperbola.base.Assignment;
 import io.hyperbola.base.Variable;
-import io.hyperbola.stream.Filterer;
+import io.hyperbola.stream.KeyFilterer;
 import io.hyperbola.stream.LayerFilterer;
 import io.hyperbola.stream.Selector;
 
@@ -20,34 +19,31 @@ import io.hyperbola.stream.Selector;
 public abstract class DegreeHeuristicExpander implements Expander {
 
     /** A filter that always selects variables having most unassigned neighbors. */
-    public static final Filterer<Variable> DEGREE_HEURISTIC_FILTER = (candidates, successor) -> {
-        int max = -1, nUnassignedNeighbor;
-        List<Variable> passed = new ArrayList<>();
-        for (Variable v: candidates) {
-            nUnassignedNeighbor = successor.peekCountOfUnassignedNeighborsOf(v);
-            if (nUnassignedNeighbor < max) {
-                continue;
-            }
-            if (nUnassignedNeighbor > max) {
-                max = nUnassignedNeighbor;
-                passed.clear();
-            }
-            passed.add(v);
-        }
-        return passed;
-    };
+    public static final KeyFilterer<Variable> DEGREE_HEURISTIC_FILTER
+            = (candidate, successor) -> -successor.peekCountOfUnassignedNeighborsOf(candidate);
+
+    private Selector<Variable> pipeline = null;
 
     @Override
     public final List<Assignment> assign(AbstractNode successor) {
 
         Collection<Variable> unassignedVars = successor.peekUnassignedVariables();
-        Variable elect = new LayerFilterer<Variable>().then(DEGREE_HEURISTIC_FILTER)      // Step (1)
-                                                      .then(findElect())                  // Step (2)
-                                                      .select(unassignedVars, successor);
+        Variable elect = pipeline().select(unassignedVars, successor);                    // Steps (1) and (2)
         if (elect == null) return List.of();
         return Expander.matchWords(elect, successor.peekDomainOf(elect), randomSort());    // Step (3)
     }
 
+    /**
+     * Queries steps (1) and (2) compiled into a single pass. It is compiled when first queried and then kept.
+     */
+    private Selector<Variable> pipeline() {
+        if (pipeline == null) {
+            pipeline = new LayerFilterer<Variable>().then(DEGREE_HEURISTIC_FILTER) // Step (1)
+                                                    .compile(findElect());         // Step (2)
+        }
+        return pipeline;
+    }
+
     /** Step (2): Determines the only elected variable within candidates. */
     protected abstract Selector<Variable> findElect();
 
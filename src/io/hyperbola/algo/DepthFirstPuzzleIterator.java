@@ -1,24 +1,65 @@
 package io.hyperbola.algo;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.NoSuchElementException;
 import java.util.Objects;
 import io.hyperbola.base.Board;
 
 /**
  * A puzzle iterator implementing DFS.
+ *
+ * The stack holds frames, each of which is the offspring of an expanded node that are not visited yet. In the default
+ * mode all offspring of a node are built when it is expanded. In the lazy mode, an offspring is built only when it is
+ * about to be visited, so nodes never visited are never built; in that case the stack size counts the offspring not
+ * visited including those not built yet, some of which might be skipped by forward checking.
  */
 public class DepthFirstPuzzleIterator implements PuzzleIterator {
 
     private final Expander ea;
-    private final LinkedList<AbstractNode> stack = new LinkedList<>();
+    private final boolean lazy;
+    private final LinkedList<Offspring> stack = new LinkedList<>();
     private AbstractNode currentNode = null;
-    private int maxSize = 0;
+    private int maxFrames = 0, maxMaterialized = 0, maxSize = 0;
     private long step = 0;
 
     public DepthFirstPuzzleIterator(AbstractNode root, Expander algorithm) {
+        this(root, algorithm, false);
+    }
+
+    /**
+     * Creates an iterator.
+     * @param root      root node
+     * @param algorithm expander determining the offspring of each node
+     * @param lazy      set to true to build an offspring only when it is about to be visited
+     */
+    public DepthFirstPuzzleIterator(AbstractNode root, Expander algorithm, boolean lazy) {
         this.ea = algorithm;
-        stack.add(Objects.requireNonNull(root));
+        this.lazy = lazy;
+        stack.push(Offspring.of(List.of(Objects.requireNonNull(root))));
+    }
+
+    /**
+     * Searches the rest of the search tree and counts the solutions without reporting them, and the searching ends
+     * afterwards. Once the unassigned variables of a node cross none of each other, the words in their domains can be
+     * assigned freely, so the product of their domain sizes is added to the count instead of expanding the node. Hence
+     * neither boards nor the nodes of solutions are built.
+     * @return the count of solutions in the rest of the search tree
+     * @throws ArithmeticException if the count overflows a long
+     */
+    public long countSolutions() {
+        long count = 0, completions;
+        Offspring top;
+        while ((top = stack.peek()) != null) {
+            currentNode = top.next();
+            if (!top.hasNext()) stack.pop();
+            step++;
+            completions = currentNode.countIndependentCompletions();
+            if (completions >= 0) {
+                count = Math.addExact(count, completions);
+                continue;
+            }
+            push(lazy? ea.expandLazily(currentNode): Offspring.of(ea.expand(currentNode)));
+        }
+        return count;
     }
 
     @Override
@@ -31,6 +72,20 @@ public class DepthFirstPuzzleIterator implements PuzzleIterator {
         return !stack.isEmpty();
     }
 
+    /**
+     * Queries the max count of frames in the stack in the searching history.
+     */
+    public int maxFrameCount() {
+        return maxFrames;
+    }
+
+    /**
+     * Queries the max count of nodes which are built but not visited in the searching history.
+     */
+    public int maxMaterializedNodeCount() {
+        return maxMaterialized;
+    }
+
     @Override
     public int maxStackSize() {
         return maxSize;
@@ -38,32 +93,45 @@ public class DepthFirstPuzzleIterator implements PuzzleIterator {
 
     @Override
     public int next() {
-        AbstractNode n;
-        try { n = stack.pop(); }
         // If the stack is empty, the searching is ended.
-        catch (NoSuchElementException e) {
-            throw new IllegalStateException();
-        }
+        Offspring top = stack.peek();
+        if (top == null) throw new IllegalStateException();
+        AbstractNode n = top.next();
+        if (!top.hasNext()) stack.pop();
 
         step++;
         currentNode = n;
-        List<? extends AbstractNode> expanded = ea.expand(currentNode);
-        if (expanded.isEmpty()) {
+        Offspring expanded = lazy? ea.expandLazily(currentNode): Offspring.of(ea.expand(currentNode));
+        if (!expanded.hasNext()) {
             return currentNode.isSolution()? SOLUTION: FAILURE;
         }
 
-        stack.addAll(0, expanded); // DFS
-        maxSize = Math.max(maxSize, stackSize());
+        push(expanded);
         return UNKNOWN;
     }
 
+    /**
+     * Pushes the offspring of the current node into the stack if there is any.
+     */
+    private void push(Offspring expanded) {
+        if (!expanded.hasNext()) return;
+        stack.push(expanded); // DFS
+        int materialized = 0;
+        for (Offspring o: stack) materialized += o.materialized();
+        maxFrames = Math.max(maxFrames, stack.size());
+        maxMaterialized = Math.max(maxMaterialized, materialized);
+        maxSize = Math.max(maxSize, stackSize());
+    }
+
     @Override
     public int stackSize() {
-        return stack.size();
+        int size = 0;
+        for (Offspring o: stack) size += o.remaining();
+        return size;
     }
 
     @Override
     public long step() {
         return step;
     }
-}
\ No newline at end of file
+}
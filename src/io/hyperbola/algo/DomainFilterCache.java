@@ -0,0 +1,55 @@
+package io.hyperbola.algo;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import io.hyperbola.base.Domain;
+import io.hyperbola.base.Variable;
+import static io.hyperbola.base.Dictionary.ALPHABET_SIZE;
+import static io.hyperbola.base.Dictionary.letterIndex;
+
+/**
+ * A cache of the updates made when a node is expanded. The offspring of a node assign different words to a variable,
+ * but the filtered domain of a neighbor only depends on the letter at the cross, so at most 26 distinct results exist
+ * for each neighbor; offspring sharing that letter share one filtered domain. Likewise, the unassigned neighbors of a
+ * neighbor do not depend on the word at all.
+ *
+ * A cache is only valid for the domains of a single node, and it is not thread-safe.
+ */
+final class DomainFilterCache {
+
+    private final Map<Variable, Domain[]> domains = new HashMap<>(); // [position * 26 + letter] -> filtered domain
+    private final Map<Variable, Map<Variable, List<Variable>>> neighbors = new HashMap<>();
+
+    /**
+     * Retains the words in the domain of a variable having the given letter at the given position.
+     * @param variable variable whose domain is filtered
+     * @param domain   the domain of such variable; which must be identical whenever the same variable is given
+     */
+    Domain filter(Variable variable, Domain domain, int position, char letter) {
+        int l = letterIndex(letter);
+        if (l < 0) return domain.filterByLetterAt(position, letter);
+        Domain[] cached = domains.computeIfAbsent(variable, k -> new Domain[k.length() * ALPHABET_SIZE]);
+        int key = position * ALPHABET_SIZE + l;
+        if (cached[key] == null) cached[key] = domain.filterByLetterAt(position, letter);
+        return cached[key];
+    }
+
+    /**
+     * Removes an assigned variable from the unassigned neighbors of a variable.
+     * @param variable  variable whose neighbors are updated
+     * @param neighbors the unassigned neighbors of such variable; which must be identical whenever the same variable is
+     *                  given
+     * @param assigned  the assigned variable
+     * @return an unmodifiable list
+     */
+    List<Variable> remove(Variable variable, List<Variable> neighbors, Variable assigned) {
+        return this.neighbors.computeIfAbsent(assigned, k -> new HashMap<>())
+                             .computeIfAbsent(variable, k -> {
+                                 List<Variable> updated = new ArrayList<>(neighbors);
+                                 assert updated.contains(assigned);
+                                 updated.remove(assigned);
+                                 return List.copyOf(updated);
+                             });
+    }
+}
@@ -1,3 +1,27 @@
 package io.hyperbola.algo;
+import io.hyperbola.base.Variable;
+
 public class EmptyDomainException extends RuntimeException {
+
+    private final Variable variable;
+
+    public EmptyDomainException() {
+        this(null);
+    }
+
+    /**
+     * Creates an exception.
+     * @param variable the variable found to be with an empty domain
+     */
+    public EmptyDomainException(Variable variable) {
+        this.variable = variable;
+    }
+
+    /**
+     * Queries the variable found to be with an empty domain.
+     * @return the variable; or null if it is unknown
+     */
+    public Variable getVariable() {
+        return variable;
+    }
 }
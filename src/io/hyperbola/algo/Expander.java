@@ -59,8 +59,25 @@ public interface Expander {
         List<AbstractNode> expanded = new ArrayList<>();
         for (Assignment a: asgList) {
             try {expanded.add(node.expand(a));}
-            catch (EmptyDomainException ignored) {}
+            catch (EmptyDomainException e) {onEmptyDomain(a, e.getVariable());}
         }
+        node.releaseFilterCache();
         return expanded;
     }
+
+    /**
+     * Generates offspring of a given node lazily. The assignments are determined immediately, but an offspring is
+     * built only when it is about to be visited.
+     */
+    default Offspring expandLazily(AbstractNode node) {
+        return Offspring.lazy(this, node, assign(node));
+    }
+
+    /**
+     * Notifies this expander that an assignment it determined is rejected since the domain of some variable becomes
+     * empty. Expanders learning from failures may override this method; by default nothing happens.
+     * @param assignment the rejected assignment
+     * @param variable   the variable found to be with an empty domain; or null if it is unknown
+     */
+    default void onEmptyDomain(Assignment assignment, Variable variable) {}
 }
@@ -1,4 +1,5 @@
 package io.hyperbola.algo;
+import io.hyperbola.base.Domain;
 import io.hyperbola.base.Variable;
 
 class IntersectJudger {
@@ -17,6 +18,20 @@ class IntersectJudger {
         c = word.charAt(indexOfAssigned);
     }
 
+    /**
+     * Counts the words in the domain that pass the judgement.
+     */
+    public int count(Domain domain) {
+        return domain.countByLetterAt(index, c);
+    }
+
+    /**
+     * Retains the words in the domain that pass the judgement.
+     */
+    public Domain filter(Domain domain) {
+        return domain.filterByLetterAt(index, c);
+    }
+
     public boolean judge(String word) {
         return word.charAt(index) == c;
     }
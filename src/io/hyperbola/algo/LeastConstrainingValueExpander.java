@@ -1,8 +1,11 @@
 package io.hyperbola.algo;
 import java.util.*;
 import io.hyperbola.base.Assignment;
+import io.hyperbola.base.Domain;
 import io.hyperbola.base.Variable;
 import io.hyperbola.stream.Selector;
+import static io.hyperbola.algo.IntersectJudger.intersectAt;
+import static io.hyperbola.base.Dictionary.letterIndex;
 
 /**
  * This algorithm tries to implement the least constraining value searching. It expands a node by the following steps:
@@ -18,6 +21,9 @@ import io.hyperbola.stream.Selector;
  */
 public abstract class LeastConstrainingValueExpander implements Expander {
 
+    private static final int RADIX_BITS = 11;
+    private static final int RADIX = 1 << RADIX_BITS;
+
     /**
      * Given the elected variable, sorts words in the order of LCV algorithm without forward checkout. Noted that
      * sometimes not all words are found in the returned list if such assignment empties another variable's domain.
@@ -26,27 +32,29 @@ public abstract class LeastConstrainingValueExpander implements Expander {
      * @param successor      successor node
      * @param randomSort     set to true to randomly sort words having same level
      */
-    public static List<String> lcv(Variable elect,
-                                   List<String> wordCandidates,
-                                   AbstractNode successor,
-                                   boolean randomSort) {
+    public static Collection<String> lcv(Variable elect,
+                                         Domain wordCandidates,
+                                         AbstractNode successor,
+                                         boolean randomSort) {
         return lcv(elect, wordCandidates, successor, randomSort, false);
     }
 
     /**
      * Given the elected variable, sorts words in the order of LCV algorithm. Noted that sometimes not all words are
-     * found in the returned list if such assignment empties another variable's domain.
+     * found in the returned list if such assignment empties another variable's domain. For each neighbor, the words of
+     * its domain are counted by their letters at the cross only once, so that a word is scored by looking up the
+     * counts of its letters at all crosses.
      * @param elect          elected variable
      * @param wordCandidates words should be sorted
      * @param successor      successor node
      * @param randomSort     set to true to randomly sort words having same level
      * @param forwardCheck   true to enable forward checking
      */
-    public static List<String> lcv(Variable elect,
-                                   List<String> wordCandidates,
-                                   AbstractNode successor,
-                                   boolean randomSort,
-                                   boolean forwardCheck) {
+    public static Collection<String> lcv(Variable elect,
+                                         Domain wordCandidates,
+                                         AbstractNode successor,
+                                         boolean randomSort,
+                                         boolean forwardCheck) {
 
         // Step (2): Find all neighbors
         List<Variable> neighbors = successor.peekUnassignedNeighborsOf(elect);
@@ -59,17 +67,27 @@ public abstract class LeastConstrainingValueExpander implements Expander {
         }
 
         // Step (3): Sorts all the words in the lcv order.
-        // Step (3-1): Builds a count-to-words map
-        Map<Integer, List<String>> nValMap = new HashMap<>(wordCandidates.size());
-        int count;
-        IntersectJudger j;
+        // Step (3-1): For each neighbor, counts its words by the letter at the cross
+        int nNeighbor = neighbors.size();
+        int[][] histograms = new int[nNeighbor][];
+        int[] crosses = new int[nNeighbor]; // index of the cross in the elect
+        Variable n;
+        for (int i = 0; i < nNeighbor; i++) {
+            n = neighbors.get(i);
+            histograms[i] = successor.peekDomainOf(n).letterHistogramAt(intersectAt(n, elect));
+            crosses[i] = intersectAt(elect, n);
+        }
+        // Step (3-2): Scores each word by looking up the histograms
+        String[] words = new String[wordCandidates.size()];
+        int[] counts = new int[words.length];
+        int nWord = 0, count, letter, passed;
         next:
         for (String word: wordCandidates) {
             count = 0;
-            for (Variable n: neighbors) {
-                j = new IntersectJudger(n, elect, word);
+            for (int i = 0; i < nNeighbor; i++) {
                 // Finds the size of single unassigned variable's domain
-                int passed = (int) successor.peekDomainOf(n).stream().filter(j::judge).count();
+                letter = letterIndex(word.charAt(crosses[i]));
+                passed = letter < 0? 0: histograms[i][letter];
                 if (forwardCheck && passed == 0) {
                     // If this word contributes to some another unassigned variable having empty domain, this word
                     // must lead to failure; hence this word is not put into consideration and such node should not
@@ -78,19 +96,21 @@ public abstract class LeastConstrainingValueExpander implements Expander {
                 }
                 count += passed;
             }
-            List<String> list = nValMap.computeIfAbsent(count, k -> new ArrayList<>());
-            list.add(word);
+            words[nWord] = word;
+            counts[nWord++] = count;
         }
-        // Step (3-2): Then converts this map to a list of ordered words
-        List<Integer> counts = new ArrayList<>(nValMap.keySet());
-        counts.sort(null);
-        List<String> words = new ArrayList<>(wordCandidates.size());
-        for (int c: counts) {
-            List<String> picked = nValMap.get(c);
-            sortWords(picked, randomSort);
-            words.addAll(picked);
+        // Step (3-3): Then sorts the words by their counts
+        sortByCount(words, counts, nWord);
+        List<String> sorted = Arrays.asList(words).subList(0, nWord);
+        if (randomSort) {
+            // Shuffles words having the same count
+            Random random = new Random(System.currentTimeMillis());
+            for (int from = 0, to; from < nWord; from = to) {
+                for (to = from + 1; to < nWord && counts[to] == counts[from]; ) to++;
+                Collections.shuffle(sorted.subList(from, to), random);
+            }
         }
-        return words;
+        return sorted;
     }
 
     /**
@@ -101,13 +121,54 @@ public abstract class LeastConstrainingValueExpander implements Expander {
      * @param successor      successor node
      * @param randomSort     set to true to randomly sort words having same level
      */
-    public static List<String> lcvForwardCheck(Variable elect,
-                                               List<String> wordCandidates,
-                                               AbstractNode successor,
-                                               boolean randomSort) {
+    public static Collection<String> lcvForwardCheck(Variable elect,
+                                                     Domain wordCandidates,
+                                                     AbstractNode successor,
+                                                     boolean randomSort) {
         return lcv(elect, wordCandidates, successor, randomSort, true);
     }
 
+    /**
+     * Stably sorts the first n words by their counts in ascending order. It is a LSD radix sort on the counts, which
+     * turns out to be a counting sort if the counts are within a small range.
+     */
+    private static void sortByCount(String[] words, int[] counts, int n) {
+        if (n < 2) return;
+        int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            min = Math.min(min, counts[i]);
+            max = Math.max(max, counts[i]);
+        }
+        int range = max - min;
+        if (range == 0) return;
+        // A smaller radix is used if all counts fit in a single digit
+        int radix = Math.min(RADIX, Integer.highestOneBit(range) << 1);
+        String[] w = words, wBuf = new String[n];
+        int[] c = counts, cBuf = new int[n], tmpC;
+        String[] tmpW;
+        int[] buckets = new int[radix + 1];
+        for (int shift = 0; shift < Integer.SIZE && (range >>> shift) != 0; shift += RADIX_BITS) {
+            Arrays.fill(buckets, 0);
+            for (int i = 0; i < n; i++) buckets[((c[i] - min) >>> shift & (radix - 1)) + 1]++;
+            for (int i = 1; i <= radix; i++) buckets[i] += buckets[i - 1];
+            for (int i = 0, d; i < n; i++) {
+                d = buckets[(c[i] - min) >>> shift & (radix - 1)]++;
+                wBuf[d] = w[i];
+                cBuf[d] = c[i];
+            }
+            tmpW = w;
+            w = wBuf;
+            wBuf = tmpW;
+            tmpC = c;
+            c = cBuf;
+            cBuf = tmpC;
+        }
+        if (w != words) {
+            System.arraycopy(w, 0, words, 0, n);
+            System.arraycopy(c, 0, counts, 0, n);
+        }
+    }
+
     private static void sortWords(List<String> wordCandidates, boolean random) {
         if (!random) return;
         Collections.shuffle(wordCandidates, new Random(System.currentTimeMillis()));
@@ -130,11 +191,11 @@ public abstract class LeastConstrainingValueExpander implements Expander {
             return List.of();
         }
         // Step (2) & (3)
-        List<String> wordsInLcv = lcv(elect,
-                                      successor.peekDomainOf(elect),
-                                      successor,
-                                      randomSort(),
-                                      forwardCheck);
+        Collection<String> wordsInLcv = lcv(elect,
+                                            successor.peekDomainOf(elect),
+                                            successor,
+                                            randomSort(),
+                                            forwardCheck);
         return Expander.matchWords(elect, wordsInLcv, randomSort());
     }
 
@@ -0,0 +1,165 @@
+package io.hyperbola.algo;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Objects;
+import io.hyperbola.base.Assignment;
+import io.hyperbola.base.Board;
+
+/**
+ * A puzzle iterator implementing limited discrepancy search. Visiting an offspring other than the first one ordered by
+ * the expander is a discrepancy, that is, a deviation from the heuristic. The searching is divided into iterations; the
+ * k-th iteration, starting from zero, is a DFS from the root skipping the paths having more than k discrepancies, so
+ * the paths deviating least from the heuristic are tried first. A bad choice near the root is thus undone after a
+ * single iteration, instead of after its whole subtree is searched.
+ *
+ * Each leaf is reported only in the iteration whose bound equals its discrepancies, so every solution and failure is
+ * reported exactly once; the nodes near the root are visited again in every iteration and each visit is a step. A
+ * subtree is skipped if it has too few unassigned variables to reach the bound. The searching ends after an iteration
+ * in which no path is cut by the bound. Offspring are built lazily, so skipped nodes are never built.
+ *
+ * The above holds only if each node is given the same offspring in the same order in every iteration; however, an
+ * expander may break ties randomly or learn from the searching. Hence the assignments determined by the expander when
+ * a node is first expanded are remembered, in a tree mirroring the search tree, and reused whenever such node is
+ * expanded again; the expander is consulted only once per node. An offspring is identified by the index of its
+ * assignment among those of its parent, not by the assignment it reports, since a node may fill in other variables
+ * after the assignment. The memory used grows with the count of nodes expanded over all iterations.
+ */
+public class LimitedDiscrepancyPuzzleIterator implements PuzzleIterator {
+
+    /**
+     * The offspring of an expanded node which are not visited yet, and the discrepancies of the path to such node.
+     */
+    private static final class Frame {
+
+        final int discrepancies;
+        final Memo memo;
+        final Offspring offspring;
+        boolean visited = false; // whether the first offspring is visited
+
+        /**
+         * @param memo the memo of the expanded node
+         */
+        Frame(Offspring offspring, int discrepancies, Memo memo) {
+            this.offspring = offspring;
+            this.discrepancies = discrepancies;
+            this.memo = memo;
+        }
+    }
+
+    /**
+     * The assignments of a node determined when it is first expanded, and the memos of its offspring.
+     */
+    private static final class Memo {
+
+        List<Assignment> assignments = null;
+        Memo[] offspring = null; // [index of the assignment] -> memo of the offspring
+
+        /**
+         * Queries the memo of the offspring generated by the i-th assignment; or creates one if absent.
+         */
+        Memo of(int i) {
+            if (offspring[i] == null) offspring[i] = new Memo();
+            return offspring[i];
+        }
+    }
+
+    private final Expander ea;
+    private final Memo memo = new Memo(); // whose only offspring is the root
+    private final AbstractNode root;
+    private final LinkedList<Frame> stack = new LinkedList<>();
+    private int bound = 0, maxSize = 0;
+    private AbstractNode currentNode = null;
+    private boolean cut = false; // whether some path is cut by the bound in the current iteration
+    private long step = 0;
+
+    /**
+     * Creates an iterator.
+     * @param root      root node
+     * @param algorithm expander determining the offspring of each node
+     */
+    public LimitedDiscrepancyPuzzleIterator(AbstractNode root, Expander algorithm) {
+        this.root = Objects.requireNonNull(root);
+        this.ea = algorithm;
+        memo.offspring = new Memo[1];
+        stack.push(new Frame(Offspring.of(List.of(root)), 0, memo));
+    }
+
+    @Override
+    public Board currentBoard() {
+        return currentNode == null? null: currentNode.getBoard();
+    }
+
+    /**
+     * Queries the max count of discrepancies allowed in the current iteration, which is also the count of iterations
+     * before the current one.
+     */
+    public int discrepancyBound() {
+        return bound;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !stack.isEmpty() || cut;
+    }
+
+    @Override
+    public int maxStackSize() {
+        return maxSize;
+    }
+
+    @Override
+    public int next() {
+        if (stack.isEmpty()) {
+            // If no path is cut, the searching is ended.
+            if (!cut) throw new IllegalStateException();
+            bound++;
+            cut = false;
+            stack.push(new Frame(Offspring.of(List.of(root)), 0, memo));
+        }
+
+        Frame top = stack.peek();
+        int discrepancies = top.discrepancies + (top.visited? 1: 0);
+        AbstractNode n = top.offspring.next();
+        int index = top.offspring.index();
+        top.visited = true;
+        if (top.discrepancies == bound) {
+            // The other offspring need one more discrepancy
+            if (top.offspring.remaining() > 0) cut = true;
+            stack.pop();
+        } else if (!top.offspring.hasNext()) {
+            stack.pop();
+        }
+
+        step++;
+        currentNode = n;
+        // Each unassigned variable adds at most one discrepancy; the leaves below are reported in former iterations
+        if (bound - discrepancies > n.peekUnassignedVariables().size()) return UNKNOWN;
+
+        Memo m = top.memo.of(index);
+        if (m.assignments == null) {
+            m.assignments = ea.assign(n);
+            m.offspring = new Memo[m.assignments.size()];
+        }
+        Offspring expanded = Offspring.lazy(ea, n, m.assignments);
+        if (!expanded.hasNext()) {
+            if (discrepancies < bound) return UNKNOWN;
+            return n.isSolution()? SOLUTION: FAILURE;
+        }
+
+        stack.push(new Frame(expanded, discrepancies, m)); // DFS
+        maxSize = Math.max(maxSize, stackSize());
+        return UNKNOWN;
+    }
+
+    @Override
+    public int stackSize() {
+        int size = 0;
+        for (Frame f: stack) size += f.offspring.remaining();
+        return size;
+    }
+
+    @Override
+    public long step() {
+        return step;
+    }
+}
@@ -0,0 +1,149 @@
+package io.hyperbola.algo;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import io.hyperbola.base.Domain;
+import io.hyperbola.base.Variable;
+import io.hyperbola.stream.Selector;
+
+/**
+ * A {@link ComponentSolutionCounter} which remembers the counts of the components it has counted. The same component
+ * is often reached under different assignments elsewhere: the same unassigned variables with identical domains. The
+ * crosses among such variables are the same as well, so its count is the same; it is looked up rather than counted
+ * again. A component is identified by the ids of its variables together with their domains.
+ *
+ * The counts are kept in a bounded cache, from which the least recently used count is evicted when it is full. The
+ * cache lives as long as the counter. The variables must be built by {@link Variable.Builder} so that they are given
+ * ids.
+ */
+public class MemoizingSolutionCounter extends ComponentSolutionCounter {
+
+    /**
+     * The ids of the variables of a component, sorted, and their domains in the same order. A component only has the
+     * variables still unassigned in the node, since {@link ComponentSolutionCounter} leaves out those filled in on
+     * expansion; an assigned variable has no domain to be keyed.
+     */
+    private static final class Key {
+
+        final Domain[] domains;
+        final int hash;
+        final int[] ids;
+
+        Key(List<Variable> component, AbstractNode node) {
+            int n = component.size();
+            ids = new int[n];
+            for (int i = 0; i < n; i++) ids[i] = component.get(i).getId();
+            Arrays.sort(ids);
+            domains = new Domain[n];
+            for (Variable v: component) domains[Arrays.binarySearch(ids, v.getId())] = node.peekDomainOf(v);
+            hash = Arrays.hashCode(ids) * 31 + Arrays.hashCode(domains);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof Key) {
+                Key k = (Key) o;
+                return k.hash == hash && Arrays.equals(k.ids, ids) && Arrays.equals(k.domains, domains);
+            }
+            return false;
+        }
+    }
+
+    private final LinkedHashMap<Key, Long> cache;
+    private final int capacity;
+    private long evictions = 0, hits = 0, misses = 0;
+
+    /**
+     * Creates a counter electing variables by {@link #MRV_DGH_SELECTOR}.
+     * @param root     root node
+     * @param capacity max count of components whose counts are kept
+     * @throws IllegalArgumentException if capacity is not positive, or if the variables are not given ids by {@link
+     *                                  Variable.Builder}
+     */
+    public MemoizingSolutionCounter(AbstractNode root, int capacity) {
+        this(root, MRV_DGH_SELECTOR, capacity);
+    }
+
+    /**
+     * Creates a counter.
+     * @param root     root node
+     * @param selector elects the variable to be assigned among the variables of a component
+     * @param capacity max count of components whose counts are kept
+     * @throws IllegalArgumentException if capacity is not positive, or if the variables are not given ids by {@link
+     *                                  Variable.Builder}
+     */
+    public MemoizingSolutionCounter(AbstractNode root, Selector<Variable> selector, int capacity) {
+        super(root, selector);
+        if (capacity <= 0) throw new IllegalArgumentException();
+        for (Variable v: root.peekUnassignedVariables()) {
+            if (v.getId() < 0) throw new IllegalArgumentException();
+        }
+        this.capacity = capacity;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Long> eldest) {
+                if (size() <= MemoizingSolutionCounter.this.capacity) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public long count() {
+        evictions = 0;
+        hits = 0;
+        misses = 0;
+        return super.count();
+    }
+
+    @Override
+    protected long countComponent(List<Variable> component, AbstractNode node) {
+        Key key = new Key(component, node);
+        Long count = cache.get(key);
+        if (count != null) {
+            hits++;
+            return count;
+        }
+        misses++;
+        long c = super.countComponent(component, node);
+        cache.put(key, c);
+        return c;
+    }
+
+    /**
+     * Queries the count of counts evicted from the cache in the last counting.
+     */
+    public long evictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Queries the count of components whose counts are found in the cache in the last counting.
+     */
+    public long hitCount() {
+        return hits;
+    }
+
+    /**
+     * Queries the ratio of the components whose counts are found in the cache to all components counted in the last
+     * counting.
+     * @return the ratio; or 0 if no components are counted
+     */
+    public double hitRate() {
+        return hits + misses == 0? 0: (double) hits / (hits + misses);
+    }
+
+    /**
+     * Queries the count of components counted without the cache in the last counting.
+     */
+    public long missCount() {
+        return misses;
+    }
+}
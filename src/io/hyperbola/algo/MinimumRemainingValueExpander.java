@@ -1,11 +1,8 @@
 package io.hyperbola.algo;
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 import io.hyperbola.base.Assignment;
 import io.hyperbola.base.Variable;
-import io.hyperbola.stream.Filterer;
-import io.hyperbola.stream.LayerFilterer;
+import io.hyperbola.stream.KeyFilterer;
 import io.hyperbola.stream.Selector;
 
 /**
@@ -21,27 +18,13 @@ import io.hyperbola.stream.Selector;
 public abstract class MinimumRemainingValueExpander implements Expander {
 
     /** A filter that always selects variables having minimum count of domains. */
-    public static final Filterer<Variable> MINIMUM_REMAINING_VALUE_FILTER = (candidates, successor) -> {
-        List<Variable> passed = new ArrayList<>();
-        int minDomainSize = Integer.MAX_VALUE, domainSize;
-        for (Variable v: candidates) {
-            domainSize = successor.peekDomainSizeOf(v);
-            if (domainSize > minDomainSize) continue;
-            if (domainSize < minDomainSize) {
-                minDomainSize = domainSize;
-                passed.clear();
-            }
-            passed.add(v);
-        }
-        return passed;
-    };
+    public static final KeyFilterer<Variable> MINIMUM_REMAINING_VALUE_FILTER
+            = (candidate, successor) -> successor.peekDomainSizeOf(candidate);
 
     @Override
     public final List<Assignment> assign(AbstractNode successor) {
-        Collection<Variable> unassignedVars = successor.peekUnassignedVariables();
-        Variable elect = new LayerFilterer<Variable>().then(MINIMUM_REMAINING_VALUE_FILTER)          // Step (1)
-                                                      .then(findElect())                             // Step (2)
-                                                      .select(unassignedVars, successor);
+        List<Variable> candidates = successor.peekMinimumRemainingValueVariables();      // Step (1)
+        Variable elect = findElect().select(candidates, successor);                      // Step (2)
         if (elect == null) return List.of();
         return Expander.matchWords(elect, successor.peekDomainOf(elect), randomSort());  // Step (3)
     }
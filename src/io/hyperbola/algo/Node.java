@@ -30,7 +30,7 @@ public interface Node {
         LinkedList<Assignment> records = new LinkedList<>();
         Node n = this;
         while (n != null) {
-            records.add(0, n.getAssignment());
+            if (n.getAssignment() != null) records.addFirst(n.getAssignment());
             n = n.getSuccessor();
         }
         return new ArrayList<>(records);
@@ -45,7 +45,7 @@ public interface Node {
         Assignment a;
         while (n != null) {
             a = n.getAssignment();
-            if (a.variable == variable) {
+            if (a != null && a.variable.equals(variable)) {
                 // Found
                 return a.word;
             }
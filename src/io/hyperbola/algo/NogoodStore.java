@@ -0,0 +1,205 @@
+package io.hyperbola.algo;
+import java.util.*;
+import io.hyperbola.base.Assignment;
+import io.hyperbola.base.Variable;
+import io.hyperbola.base.VariableSurveyResult;
+import static io.hyperbola.algo.IntersectJudger.intersectAt;
+
+/**
+ * A bounded store of nogoods, that is, sets of assignments proven to lead to failure. An assignment in a nogood is
+ * recorded as the letters of the word at all the crosses of the variable, since the constraints of a puzzle only
+ * concern the crosses; two words having identical letters at every cross are interchangeable. Hence a nogood learned
+ * under some assignments also prunes the assignments of other words having the same letters at the crosses.
+ *
+ * Nogoods are indexed by each of their literals. When the store is full, the least recently used nogood is evicted.
+ * This store is not thread-safe.
+ */
+final class NogoodStore {
+
+    /**
+     * A variable together with the letters at its crosses.
+     */
+    private static final class Literal {
+
+        final String letters;
+        final int variable;
+
+        Literal(int variable, String letters) {
+            this.variable = variable;
+            this.letters = letters;
+        }
+
+        @Override
+        public int hashCode() {
+            return variable * 31 + letters.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof Literal) {
+                Literal l = (Literal) o;
+                return l.variable == variable && l.letters.equals(letters);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A set of literals, sorted by variable ids.
+     */
+    private static final class Nogood {
+
+        final Literal[] literals;
+        final BitSet variables = new BitSet();
+
+        Nogood(Literal[] literals) {
+            this.literals = literals;
+            for (Literal l: literals) variables.set(l.variable);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(literals);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Nogood && Arrays.equals(((Nogood) o).literals, literals);
+        }
+    }
+
+    private final int capacity;
+    private final int[][] crosses; // [variable id] -> indices of the crosses in such variable
+    private final Map<Literal, List<Nogood>> index = new HashMap<>();
+    private final LinkedHashMap<Nogood, Nogood> nogoods;
+    private final List<Variable> variables;
+    private long evictions = 0, hits = 0, learned = 0;
+
+    /**
+     * Creates an empty store.
+     * @param varSet   variables of the puzzle, which must be given ids by {@link Variable.Builder}
+     * @param capacity max count of nogoods stored
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    NogoodStore(VariableSurveyResult varSet, int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException();
+        this.capacity = capacity;
+        this.variables = varSet.variables;
+        this.crosses = new int[variables.size()][];
+        for (Variable v: variables) {
+            List<Variable> neighbors = v.getNeighbors();
+            int[] c = new int[neighbors.size()];
+            for (int i = 0; i < c.length; i++) c[i] = intersectAt(v, neighbors.get(i));
+            crosses[v.getId()] = c;
+        }
+        this.nogoods = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Nogood, Nogood> eldest) {
+                if (size() <= NogoodStore.this.capacity) return false;
+                unindex(eldest.getKey());
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Learns a nogood.
+     * @param variables ids of the variables in the nogood
+     * @param assigned  the assignments, in which all such variables are assigned
+     */
+    void add(BitSet variables, PartialSolution assigned) {
+        Literal[] literals = new Literal[variables.cardinality()];
+        int i = 0;
+        for (int id = variables.nextSetBit(0); id >= 0; id = variables.nextSetBit(id + 1)) {
+            literals[i++] = literalOf(id, assigned.wordOf(this.variables.get(id)));
+        }
+        Nogood n = new Nogood(literals);
+        if (nogoods.containsKey(n)) return;
+        learned++;
+        for (Literal l: literals) index.computeIfAbsent(l, k -> new ArrayList<>(2)).add(n);
+        nogoods.put(n, n);
+    }
+
+    /**
+     * Queries the count of nogoods evicted.
+     */
+    long evictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Finds a nogood which is violated if an assignment is performed.
+     * @param candidate the assignment
+     * @param assigned  the assignments performed so far
+     * @return ids of the other variables in such nogood, which must not be modified; or null if no such nogood exists
+     */
+    BitSet find(Assignment candidate, PartialSolution assigned) {
+        int id = candidate.variable.getId();
+        List<Nogood> indexed = index.get(literalOf(id, candidate.word));
+        if (indexed == null) return null;
+        for (Nogood n: indexed) {
+            if (!holds(n, id, assigned)) continue;
+            nogoods.get(n); // marks it used
+            hits++;
+            BitSet others = (BitSet) n.variables.clone();
+            others.clear(id);
+            return others;
+        }
+        return null;
+    }
+
+    /**
+     * Queries the count of assignments pruned by nogoods.
+     */
+    long hitCount() {
+        return hits;
+    }
+
+    /**
+     * Queries if all literals of a nogood except that of the given variable hold.
+     */
+    private boolean holds(Nogood n, int except, PartialSolution assigned) {
+        String word;
+        for (Literal l: n.literals) {
+            if (l.variable == except) continue;
+            word = assigned.wordOf(variables.get(l.variable));
+            if (word == null || !l.letters.equals(lettersAt(l.variable, word))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Queries the count of nogoods learned, including those evicted.
+     */
+    long learnedCount() {
+        return learned;
+    }
+
+    private String lettersAt(int variable, String word) {
+        int[] c = crosses[variable];
+        char[] letters = new char[c.length];
+        for (int i = 0; i < c.length; i++) letters[i] = word.charAt(c[i]);
+        return new String(letters);
+    }
+
+    private Literal literalOf(int variable, String word) {
+        return new Literal(variable, lettersAt(variable, word));
+    }
+
+    /**
+     * Queries the count of nogoods stored.
+     */
+    int size() {
+        return nogoods.size();
+    }
+
+    private void unindex(Nogood n) {
+        List<Nogood> indexed;
+        for (Literal l: n.literals) {
+            indexed = index.get(l);
+            indexed.remove(n);
+            if (indexed.isEmpty()) index.remove(l);
+        }
+    }
+}
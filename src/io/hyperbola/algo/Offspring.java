@@ -0,0 +1,144 @@
+package io.hyperbola.algo;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import io.hyperbola.base.Assignment;
+
+/**
+ * The offspring of an expanded node which are not visited yet, in the order they should be visited. Offspring
+ * generated by {@link Expander#expand(AbstractNode)} are all built in advance, while those generated by {@link
+ * Expander#expandLazily(AbstractNode)} are built only when they are about to be visited. Nodes which cannot be built
+ * due to {@link EmptyDomainException} are skipped.
+ */
+public abstract class Offspring implements Iterator<AbstractNode> {
+
+    /**
+     * Offspring built in advance.
+     */
+    private static final class Eager extends Offspring {
+
+        private final List<? extends AbstractNode> nodes;
+        private int cursor = 0;
+
+        Eager(List<? extends AbstractNode> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < nodes.size();
+        }
+
+        @Override
+        public int index() {
+            return cursor - 1;
+        }
+
+        @Override
+        public int materialized() {
+            return nodes.size() - cursor;
+        }
+
+        @Override
+        public AbstractNode next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return nodes.get(cursor++);
+        }
+
+        @Override
+        public int remaining() {
+            return nodes.size() - cursor;
+        }
+    }
+
+    /**
+     * Offspring built on demand. To know if there is a next one, at most one node is built in advance.
+     */
+    private static final class Lazy extends Offspring {
+
+        private final List<Assignment> assignments;
+        private final Expander expander;
+        private final AbstractNode parent;
+        private int cursor = 0, index = -1, lookaheadIndex = -1;
+        private AbstractNode lookahead = null;
+
+        Lazy(Expander expander, AbstractNode parent, List<Assignment> assignments) {
+            this.expander = expander;
+            this.parent = parent;
+            this.assignments = assignments;
+        }
+
+        @Override
+        public boolean hasNext() {
+            Assignment a;
+            while (lookahead == null && cursor < assignments.size()) {
+                lookaheadIndex = cursor;
+                a = assignments.get(cursor++);
+                try {lookahead = parent.expand(a);}
+                catch (EmptyDomainException e) {expander.onEmptyDomain(a, e.getVariable());}
+            }
+            if (cursor == assignments.size() && parent != null) parent.releaseFilterCache();
+            return lookahead != null;
+        }
+
+        @Override
+        public int index() {
+            return index;
+        }
+
+        @Override
+        public int materialized() {
+            return lookahead == null? 0: 1;
+        }
+
+        @Override
+        public AbstractNode next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            AbstractNode n = lookahead;
+            index = lookaheadIndex;
+            lookahead = null;
+            return n;
+        }
+
+        @Override
+        public int remaining() {
+            return materialized() + assignments.size() - cursor;
+        }
+    }
+
+    /**
+     * Wraps offspring which are already built.
+     */
+    static Offspring of(List<? extends AbstractNode> nodes) {
+        return new Eager(nodes);
+    }
+
+    /**
+     * Creates offspring which are built on demand.
+     * @param expander    the expander determining the assignments, which is notified of the rejected ones
+     * @param parent      the node expanded
+     * @param assignments ordered assignments performed on the parent
+     */
+    static Offspring lazy(Expander expander, AbstractNode parent, List<Assignment> assignments) {
+        return new Lazy(expander, parent, assignments);
+    }
+
+    Offspring() {}
+
+    /**
+     * Queries the index of the offspring last visited among all offspring in order, including those skipped; or -1 if
+     * none is visited yet. For offspring built on demand, it is the index of the assignment generating such offspring.
+     */
+    public abstract int index();
+
+    /**
+     * Queries the count of offspring which are built but not visited.
+     */
+    public abstract int materialized();
+
+    /**
+     * Queries the count of offspring which are not visited, including those not built yet. Some of them may be
+     * skipped when they are built.
+     */
+    public abstract int remaining();
+}
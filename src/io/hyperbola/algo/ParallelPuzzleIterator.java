@@ -0,0 +1,297 @@
+package io.hyperbola.algo;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import io.hyperbola.base.Board;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * A puzzle iterator implementing DFS on multiple threads. The search tree is split into subtrees searched by the
+ * workers of a {@link ForkJoinPool}, each of which by DFS. Whenever some worker is idle, a busy worker hands off half
+ * of the unvisited siblings nearest to the root of its subtree, which are likely the largest subtrees left, as a new
+ * task to be stolen. A node never changes once built, so it can be handed off to another worker safely; however,
+ * siblings built lazily share the cache of their parent, so all offspring of a node are built when it is expanded.
+ * An expander might not be thread-safe or might learn from the searching, so each worker uses its own expander.
+ *
+ * Solutions and failures are found in no particular order. {@link #next()} waits until some worker reaches the next
+ * leaf, so it always reports a solution or a failure; the other nodes visited are not reported one by one. To count
+ * the solutions, {@link #countSolutions()} is much faster since no leaves are reported. Steps are counted across all
+ * workers.
+ *
+ * Workers pause while the reported leaves are not taken. If the iterator is abandoned before the searching ends,
+ * {@link #cancel()} should be called to release the workers.
+ */
+public class ParallelPuzzleIterator implements PuzzleIterator {
+
+    /**
+     * The offspring of an expanded node which are not visited yet, except those handed off.
+     */
+    private static final class Frame {
+
+        final List<? extends AbstractNode> nodes;
+        int cursor = 0, end;
+
+        Frame(List<? extends AbstractNode> nodes) {
+            this.nodes = nodes;
+            this.end = nodes.size();
+        }
+
+        int remaining() {
+            return end - cursor;
+        }
+    }
+
+    /**
+     * Searches the subtrees of some siblings.
+     */
+    private final class Search extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final List<? extends AbstractNode> roots;
+        private int maxSize = 0, size = 0, reportedSize = 0;
+        private long failureCount = 0, solutionCount = 0, stepCount = 0;
+
+        Search(List<? extends AbstractNode> roots) {
+            this.roots = roots;
+        }
+
+        @Override
+        protected void compute() {
+            Expander ea = expanders.get();
+            Deque<Frame> stack = new ArrayDeque<>();
+            List<Search> forked = new ArrayList<>();
+            Frame top;
+            AbstractNode n;
+            List<? extends AbstractNode> expanded;
+            stack.push(new Frame(roots));
+            size = maxSize = roots.size();
+            try {
+                while (!stack.isEmpty() && !cancelled) {
+                    top = stack.peek();
+                    n = top.nodes.get(top.cursor++);
+                    if (top.remaining() == 0) stack.pop();
+                    size--;
+                    if ((++stepCount & (FLUSH_INTERVAL - 1)) == 0) flush();
+
+                    expanded = ea.expand(n);
+                    if (expanded.isEmpty()) {
+                        if (n.isSolution()) solutionCount++;
+                        else failureCount++;
+                        if (reporting) report(n);
+                        continue;
+                    }
+                    stack.push(new Frame(expanded)); // DFS
+                    size += expanded.size();
+                    maxSize = Math.max(maxSize, size);
+                    if (getSurplusQueuedTaskCount() <= 0) handOff(stack, forked);
+                }
+            } finally {
+                flush();
+            }
+            for (Search s: forked) s.join();
+        }
+
+        /**
+         * Adds the statistics of this task to those of the iterator.
+         */
+        private void flush() {
+            steps.add(stepCount);
+            failures.add(failureCount);
+            solutions.add(solutionCount);
+            stackSize.add(size - reportedSize);
+            maxStackSize.accumulateAndGet(maxSize, Math::max);
+            stepCount = 0;
+            failureCount = 0;
+            solutionCount = 0;
+            reportedSize = size;
+        }
+
+        /**
+         * Hands off the latter half of the siblings at the bottom of the stack as a new task. If only one sibling is
+         * left there, it is handed off unless it is the only node in the stack.
+         */
+        private void handOff(Deque<Frame> stack, List<Search> forked) {
+            Frame bottom = stack.peekLast();
+            int remaining = bottom.remaining();
+            if (remaining == 1 && stack.size() == 1) return;
+            int from = bottom.cursor + remaining / 2;
+            Search s = new Search(bottom.nodes.subList(from, bottom.end));
+            bottom.end = from;
+            if (bottom.remaining() == 0) stack.removeLast();
+            size -= remaining - remaining / 2;
+            forked.add(s);
+            s.fork();
+        }
+    }
+
+    private static final int FLUSH_INTERVAL = 1 << 12; // steps between which a worker updates the statistics
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final long WAIT_MILLIS = 10;
+
+    private final ThreadLocal<Expander> expanders;
+    private final AtomicInteger maxStackSize = new AtomicInteger();
+    private final ForkJoinPool pool;
+    private final BlockingQueue<AbstractNode> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AbstractNode root;
+    private final LongAdder failures = new LongAdder(), solutions = new LongAdder();
+    private final LongAdder stackSize = new LongAdder(), steps = new LongAdder();
+    private volatile boolean cancelled = false;
+    private AbstractNode current = null, pending = null;
+    private boolean reporting = true;
+    private Search task = null;
+
+    /**
+     * Creates an iterator with as many workers as the available processors.
+     * @param root      root node
+     * @param algorithm creates the expander determining the offspring of each node, one for each worker
+     */
+    public ParallelPuzzleIterator(AbstractNode root, Supplier<? extends Expander> algorithm) {
+        this(root, algorithm, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an iterator.
+     * @param root        root node
+     * @param algorithm   creates the expander determining the offspring of each node, one for each worker
+     * @param parallelism count of workers
+     * @throws IllegalArgumentException if parallelism is not positive
+     */
+    public ParallelPuzzleIterator(AbstractNode root, Supplier<? extends Expander> algorithm, int parallelism) {
+        this.root = Objects.requireNonNull(root);
+        this.expanders = ThreadLocal.withInitial(algorithm);
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Stops the searching. Afterwards no more solutions or failures are reported.
+     */
+    public void cancel() {
+        cancelled = true;
+        pool.shutdown();
+        queue.clear();
+        pending = null;
+    }
+
+    /**
+     * Searches all solutions and counts them without reporting them. It can be called only if the searching is not
+     * started yet, and the searching ends afterwards.
+     * @return the count of solutions; or the count found before the searching is cancelled
+     * @throws IllegalStateException if the searching is already started
+     */
+    public long countSolutions() {
+        if (task != null) throw new IllegalStateException();
+        reporting = false;
+        task = new Search(List.of(root));
+        pool.invoke(task);
+        pool.shutdown();
+        return solutions.sum();
+    }
+
+    @Override
+    public Board currentBoard() {
+        return current == null? null: current.getBoard();
+    }
+
+    /**
+     * Queries the count of failures found so far by all workers, including those not reported yet.
+     */
+    public long failureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * Queries if there is still next leaf. It waits until some worker reaches the next leaf or all workers end.
+     * If the current thread is interrupted while waiting, the searching is cancelled.
+     */
+    @Override
+    public boolean hasNext() {
+        if (task == null) {
+            task = new Search(List.of(root));
+            pool.execute(task);
+        }
+        try {
+            while (pending == null && !cancelled) {
+                if (task.isDone()) {
+                    pending = queue.poll();
+                    if (pending != null) break;
+                    pool.shutdown();
+                    task.join(); // rethrows the exception thrown by the workers, if any
+                    return false;
+                }
+                pending = queue.poll(WAIT_MILLIS, MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+        }
+        return pending != null;
+    }
+
+    /**
+     * Queries the max size of the stack of a single worker in the searching history.
+     */
+    @Override
+    public int maxStackSize() {
+        return maxStackSize.get();
+    }
+
+    /**
+     * Waits until the next leaf is reached.
+     * @return {@link #SOLUTION} or {@link #FAILURE}
+     * @throws IllegalStateException if the searching ends
+     */
+    @Override
+    public int next() {
+        if (!hasNext()) throw new IllegalStateException();
+        current = pending;
+        pending = null;
+        return current.isSolution()? SOLUTION: FAILURE;
+    }
+
+    /**
+     * Puts a leaf into the queue, waiting until the queue has space or the searching is cancelled.
+     */
+    private void report(AbstractNode leaf) {
+        try {
+            while (!cancelled) {
+                if (queue.offer(leaf, WAIT_MILLIS, MILLISECONDS)) return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queries the count of solutions found so far by all workers, including those not reported yet.
+     */
+    public long solutionCount() {
+        return solutions.sum();
+    }
+
+    /**
+     * Queries the count of nodes in the stacks of all workers, as last updated by them. Workers update it every few
+     * thousand steps, so it is only an estimate while the searching goes on.
+     */
+    @Override
+    public int stackSize() {
+        return (int) stackSize.sum();
+    }
+
+    /**
+     * Queries the count of steps taken by all workers, as last updated by them. Workers update it every few thousand
+     * steps, so it is only an estimate while the searching goes on.
+     */
+    @Override
+    public long step() {
+        return steps.sum();
+    }
+}
@@ -0,0 +1,106 @@
+package io.hyperbola.algo;
+import java.util.Arrays;
+import java.util.List;
+import io.hyperbola.base.Assignment;
+import io.hyperbola.base.Board;
+import io.hyperbola.base.Variable;
+import static io.hyperbola.base.Variable.HORIZONTAL;
+
+/**
+ * The assignments performed from the root to a node. It is persistent: extending it with an assignment creates a new
+ * one pointing to the former, which remains valid, so the assignments are shared by a node and all its offspring.
+ * Besides, the assignments are indexed by {@link Variable#getId() variable ids} so that the word assigned to a
+ * variable is found in constant time.
+ */
+final class PartialSolution {
+
+    /**
+     * The partial solution in which nothing is assigned.
+     */
+    static final PartialSolution EMPTY = new PartialSolution(null, null, new Assignment[0]);
+
+    /**
+     * Queries the partial solution consisting of the given assignments.
+     * @param assignments assignments in the order from the root; null items are ignored
+     */
+    static PartialSolution of(List<Assignment> assignments) {
+        PartialSolution s = EMPTY;
+        for (Assignment a: assignments) {
+            if (a != null) s = s.plus(a);
+        }
+        return s;
+    }
+
+    final Assignment assignment;            // the last assignment; or null if nothing is assigned
+    final PartialSolution previous;         // the former partial solution; or null if nothing is assigned
+    private final Assignment[] byVariable;  // unmodifiable, indexed by variable ids
+    private final int depth;
+
+    private PartialSolution(Assignment assignment, PartialSolution previous, Assignment[] byVariable) {
+        this.assignment = assignment;
+        this.previous = previous;
+        this.byVariable = byVariable;
+        this.depth = previous == null? 0: previous.depth + 1;
+    }
+
+    /**
+     * Queries the count of assignments.
+     */
+    int depth() {
+        return depth;
+    }
+
+    /**
+     * Creates a partial solution having one more assignment.
+     */
+    PartialSolution plus(Assignment assignment) {
+        int id = assignment.variable.getId();
+        Assignment[] extended = byVariable;
+        if (id >= 0) {
+            extended = Arrays.copyOf(byVariable, Math.max(byVariable.length, id + 1));
+            extended[id] = assignment;
+        }
+        return new PartialSolution(assignment, this, extended);
+    }
+
+    /**
+     * Fills a new board with all the assigned words.
+     */
+    Board toBoard(int width, int height) {
+        Board b = new Board(width, height);
+        for (PartialSolution p = this; p.assignment != null; p = p.previous) {
+            Variable v = p.assignment.variable;
+            if (v.getDirection() == HORIZONTAL) b.fillHorizontal(v.getX(), v.getY(), p.assignment.word);
+            else b.fillVertical(v.getX(), v.getY(), p.assignment.word);
+        }
+        return b;
+    }
+
+    /**
+     * Queries all assignments in the order from the root.
+     * @return an unmodifiable list
+     */
+    List<Assignment> toList() {
+        Assignment[] assignments = new Assignment[depth];
+        int i = depth;
+        for (PartialSolution p = this; p.assignment != null; p = p.previous) assignments[--i] = p.assignment;
+        return List.of(assignments);
+    }
+
+    /**
+     * Queries the word assigned to a variable.
+     * @return the word; or null if such variable is unassigned
+     */
+    String wordOf(Variable variable) {
+        int id = variable.getId();
+        if (id >= 0) {
+            Assignment a = id < byVariable.length? byVariable[id]: null;
+            return a != null && a.variable.equals(variable)? a.word: null;
+        }
+        // Variables without ids are not indexed
+        for (PartialSolution p = this; p.assignment != null; p = p.previous) {
+            if (p.assignment.variable.equals(variable)) return p.assignment.word;
+        }
+        return null;
+    }
+}
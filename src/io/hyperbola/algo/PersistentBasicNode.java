@@ -0,0 +1,103 @@
+package io.hyperbola.algo;
+import java.util.List;
+import java.util.Map;
+import io.hyperbola.base.Assignment;
+import io.hyperbola.base.Dictionary;
+import io.hyperbola.base.Domain;
+import io.hyperbola.base.Variable;
+import io.hyperbola.base.VariableSurveyResult;
+
+/**
+ * This class is equivalent to {@link BasicNode}, except that the variable-domain map and the variable-neighbors map
+ * are {@link PersistentMap}s. Generating an offspring node copies only the paths to the assigned variable and its
+ * neighbors, while every other entry is shared with the successor; thus the nodes in the stack retain much less memory.
+ * Forward checking is supported and it is just an option.
+ */
+public class PersistentBasicNode extends AbstractNode {
+
+    private final Assignment assignment;
+    private final boolean forwardCheck;
+    private final PersistentBasicNode successor;
+    private final PersistentMap<Variable, Domain> unassigned;
+    private final PersistentMap<Variable, List<Variable>> unassignedNeighbors;
+    private final int wBoard, hBoard;
+
+    /**
+     * Creates a root node. Dictionary must be given so that the variable-domain map can be built. Variable survey
+     * data must be given so the node knows the size of board so that it can build it.
+     * @param varSet              variables and board dimensions data
+     * @param dictionary          dictionary to be used
+     * @param requireForwardCheck set to true to enables forward checking in its offspring nodes
+     */
+    public PersistentBasicNode(VariableSurveyResult varSet, Dictionary dictionary, boolean requireForwardCheck) {
+        PersistentMap.Editor<Variable, Domain> unassignedVarDomainMap = PersistentMap.<Variable, Domain>empty().edit();
+        PersistentMap.Editor<Variable, List<Variable>> unassignedVarNeighborsMap
+                = PersistentMap.<Variable, List<Variable>>empty().edit();
+        unassignedVarDomainMap.putAll(createRootVarDomainMap(varSet, dictionary));
+        unassignedVarNeighborsMap.putAll(createRootVarNeighborsMap(varSet));
+        assignment = null;
+        successor = null;
+        wBoard = varSet.boardWidth;
+        hBoard = varSet.boardHeight;
+        unassigned = unassignedVarDomainMap.toPersistent();
+        unassignedNeighbors = unassignedVarNeighborsMap.toPersistent();
+        forwardCheck = requireForwardCheck;
+    }
+
+    /**
+     * Creates a non-root node. If the forward checking is enabled, an {@link EmptyDomainException} might be thrown.
+     * @param parent         successor node
+     * @param lastAssignment successor performs such assignment and then generates this node
+     */
+    private PersistentBasicNode(PersistentBasicNode parent, Assignment lastAssignment) {
+        PersistentMap.Editor<Variable, Domain> unassignedVarDomainMap = parent.unassigned.edit();
+        PersistentMap.Editor<Variable, List<Variable>> unassignedVarNeighborsMap = parent.unassignedNeighbors.edit();
+        updateVarDomainAndVarNeighborsMap(lastAssignment,
+                                          unassignedVarDomainMap,
+                                          unassignedVarNeighborsMap,
+                                          parent.forwardCheck,
+                                          parent.filterCache());
+        successor = parent;
+        assignment = lastAssignment;
+        unassigned = unassignedVarDomainMap.toPersistent();
+        unassignedNeighbors = unassignedVarNeighborsMap.toPersistent();
+        wBoard = successor.wBoard;
+        hBoard = successor.hBoard;
+        forwardCheck = successor.forwardCheck;
+    }
+
+    @Override
+    public PersistentBasicNode expand(Assignment assignment) {
+        return new PersistentBasicNode(this, assignment);
+    }
+
+    @Override
+    protected int getBoardHeight() {
+        return hBoard;
+    }
+
+    @Override
+    protected int getBoardWidth() {
+        return wBoard;
+    }
+
+    @Override
+    protected Map<Variable, Domain> peekUnassignedVariableDomainMap() {
+        return unassigned;
+    }
+
+    @Override
+    protected Map<Variable, List<Variable>> peekUnassignedVariableNeighborsMap() {
+        return unassignedNeighbors;
+    }
+
+    @Override
+    public Assignment getAssignment() {
+        return assignment;
+    }
+
+    @Override
+    public PersistentBasicNode getSuccessor() {
+        return successor;
+    }
+}
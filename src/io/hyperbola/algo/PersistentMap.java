@@ -0,0 +1,385 @@
+package io.hyperbola.algo;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable map implemented by a hash array mapped trie. Each level of the trie consumes 5 bits of the hash of the
+ * key, and a branch only allocates slots for the children that exist. Updating a map copies just the path from the
+ * root to the updated entry, so the updated map shares every other entry, and most of the trie, with the former one.
+ *
+ * A map is updated through an {@link Editor}, which is a mutable map starting from a persistent one. Putting a value
+ * which is identical to the present one changes nothing, and hence copies nothing.
+ */
+final class PersistentMap<K, V> extends AbstractMap<K, V> {
+
+    /**
+     * A mutable map which starts from a persistent one. Every update copies a path of the trie, and the persistent
+     * map it starts from is not affected.
+     */
+    static final class Editor<K, V> extends AbstractMap<K, V> {
+
+        private Object root;
+        private int size;
+
+        private Editor(Object root, int size) {
+            this.root = root;
+            this.size = size;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return find(root, hash(key), key) != null;
+        }
+
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            return new EntrySet<>(root, size);
+        }
+
+        @Override
+        public V get(Object key) {
+            Leaf<K, V> l = find(root, hash(key), key);
+            return l == null? null: l.value;
+        }
+
+        @Override
+        public V put(K key, V value) {
+            Leaf<K, V> l = find(root, hash(key), key);
+            if (l == null) size++;
+            root = insert(root, 0, new Leaf<>(hash(key), key, value));
+            return l == null? null: l.value;
+        }
+
+        @Override
+        public V remove(Object key) {
+            Leaf<K, V> l = find(root, hash(key), key);
+            if (l == null) return null;
+            size--;
+            root = delete(root, 0, l.hash, key);
+            return l.value;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Queries the persistent map consisting of the current entries. This editor can still be used afterwards.
+         */
+        PersistentMap<K, V> toPersistent() {
+            return new PersistentMap<>(root, size);
+        }
+    }
+
+    /**
+     * An entry, which is stored as a child of a branch or in a collision.
+     */
+    private static final class Leaf<K, V> implements Entry<K, V> {
+
+        final int hash;
+        final K key;
+        final V value;
+
+        Leaf(int hash, K key, V value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ (value == null? 0: value.hashCode());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof Entry) {
+                Entry<?, ?> e = (Entry<?, ?>) o;
+                return key.equals(e.getKey()) && (value == null? e.getValue() == null: value.equals(e.getValue()));
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A node whose children are indexed by 5 bits of hashes. The i-th bit of the bitmap is set if a child exists at
+     * index i, and the children are stored in the order of their indices. A child is either a branch, a leaf or a
+     * collision.
+     */
+    private static final class Branch {
+
+        final int bitmap;
+        final Object[] children;
+
+        Branch(int bitmap, Object[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+    }
+
+    /**
+     * Leaves whose keys have identical hashes, stored in the order they are put.
+     */
+    private static final class Collision {
+
+        final int hash;
+        final Object[] leaves;
+
+        Collision(int hash, Object[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+    }
+
+    /**
+     * The entries of a trie, iterated in the order of their positions in the trie.
+     */
+    private static final class EntrySet<K, V> extends AbstractSet<Entry<K, V>> {
+
+        private final Object root;
+        private final int size;
+
+        EntrySet(Object root, int size) {
+            this.root = root;
+            this.size = size;
+        }
+
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            Deque<Object> stack = new ArrayDeque<>();
+            if (root != null) stack.push(root);
+            return new Iterator<>() {
+
+                @Override
+                public boolean hasNext() {
+                    return !stack.isEmpty();
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public Entry<K, V> next() {
+                    Object n;
+                    while ((n = stack.poll()) != null) {
+                        if (n instanceof Leaf) return (Leaf<K, V>) n;
+                        Object[] children = n instanceof Branch? ((Branch) n).children: ((Collision) n).leaves;
+                        for (int i = children.length - 1; i >= 0; i--) stack.push(children[i]);
+                    }
+                    throw new NoSuchElementException();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+
+    private static Object[] arrayInsert(Object[] array, int index, Object item) {
+        Object[] inserted = new Object[array.length + 1];
+        System.arraycopy(array, 0, inserted, 0, index);
+        inserted[index] = item;
+        System.arraycopy(array, index, inserted, index + 1, array.length - index);
+        return inserted;
+    }
+
+    private static Object[] arrayRemove(Object[] array, int index) {
+        Object[] removed = new Object[array.length - 1];
+        System.arraycopy(array, 0, removed, 0, index);
+        System.arraycopy(array, index + 1, removed, index, array.length - index - 1);
+        return removed;
+    }
+
+    private static Object[] arrayReplace(Object[] array, int index, Object item) {
+        Object[] replaced = array.clone();
+        replaced[index] = item;
+        return replaced;
+    }
+
+    /**
+     * Removes a key from a trie.
+     * @return the updated trie; or null if the trie becomes empty
+     */
+    private static Object delete(Object node, int shift, int hash, Object key) {
+        if (node instanceof Leaf) {
+            Leaf<?, ?> l = (Leaf<?, ?>) node;
+            return l.hash == hash && l.key.equals(key)? null: node;
+        }
+        if (node instanceof Collision) {
+            Collision c = (Collision) node;
+            if (c.hash != hash) return node;
+            for (int i = 0; i < c.leaves.length; i++) {
+                if (!((Leaf<?, ?>) c.leaves[i]).key.equals(key)) continue;
+                if (c.leaves.length == 2) return c.leaves[1 - i];
+                return new Collision(hash, arrayRemove(c.leaves, i));
+            }
+            return node;
+        }
+        Branch b = (Branch) node;
+        int bit = bitOf(hash, shift);
+        if ((b.bitmap & bit) == 0) return node;
+        int index = Integer.bitCount(b.bitmap & (bit - 1));
+        Object child = b.children[index];
+        Object updated = delete(child, shift + BITS, hash, key);
+        if (updated == child) return node;
+        if (updated == null) {
+            if (b.children.length == 1) return null;
+            // A single leaf or collision left needs no branch
+            if (b.children.length == 2 && !(b.children[1 - index] instanceof Branch)) return b.children[1 - index];
+            return new Branch(b.bitmap & ~bit, arrayRemove(b.children, index));
+        }
+        if (b.children.length == 1 && !(updated instanceof Branch)) return updated;
+        return new Branch(b.bitmap, arrayReplace(b.children, index, updated));
+    }
+
+    private static int bitOf(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    /**
+     * Queries the persistent map without any entry.
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Leaf<K, V> find(Object node, int hash, Object key) {
+        int shift = 0;
+        while (node instanceof Branch) {
+            Branch b = (Branch) node;
+            int bit = bitOf(hash, shift);
+            if ((b.bitmap & bit) == 0) return null;
+            node = b.children[Integer.bitCount(b.bitmap & (bit - 1))];
+            shift += BITS;
+        }
+        if (node instanceof Leaf) {
+            Leaf<K, V> l = (Leaf<K, V>) node;
+            return l.hash == hash && l.key.equals(key)? l: null;
+        }
+        if (node instanceof Collision && ((Collision) node).hash == hash) {
+            for (Object l: ((Collision) node).leaves) {
+                if (((Leaf<?, ?>) l).key.equals(key)) return (Leaf<K, V>) l;
+            }
+        }
+        return null;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int hashOf(Object node) {
+        return node instanceof Leaf? ((Leaf<?, ?>) node).hash: ((Collision) node).hash;
+    }
+
+    /**
+     * Puts a leaf into a trie.
+     * @return the updated trie; or the given one if the leaf is already in it
+     */
+    private static Object insert(Object node, int shift, Leaf<?, ?> leaf) {
+        if (node == null) return leaf;
+        if (node instanceof Branch) {
+            Branch b = (Branch) node;
+            int bit = bitOf(leaf.hash, shift);
+            int index = Integer.bitCount(b.bitmap & (bit - 1));
+            if ((b.bitmap & bit) == 0) return new Branch(b.bitmap | bit, arrayInsert(b.children, index, leaf));
+            Object child = b.children[index];
+            Object updated = insert(child, shift + BITS, leaf);
+            return updated == child? node: new Branch(b.bitmap, arrayReplace(b.children, index, updated));
+        }
+        if (hashOf(node) != leaf.hash) return merge(node, leaf, shift);
+        if (node instanceof Leaf) {
+            Leaf<?, ?> l = (Leaf<?, ?>) node;
+            if (!l.key.equals(leaf.key)) return new Collision(leaf.hash, new Object[]{l, leaf});
+            return l.value == leaf.value? node: leaf;
+        }
+        Collision c = (Collision) node;
+        Leaf<?, ?> l;
+        for (int i = 0; i < c.leaves.length; i++) {
+            l = (Leaf<?, ?>) c.leaves[i];
+            if (!l.key.equals(leaf.key)) continue;
+            return l.value == leaf.value? node: new Collision(c.hash, arrayReplace(c.leaves, i, leaf));
+        }
+        return new Collision(c.hash, arrayInsert(c.leaves, c.leaves.length, leaf));
+    }
+
+    /**
+     * Creates a branch containing two leaves or collisions whose hashes are different.
+     */
+    private static Object merge(Object a, Object b, int shift) {
+        int ha = hashOf(a), hb = hashOf(b);
+        int bitA = bitOf(ha, shift), bitB = bitOf(hb, shift);
+        if (bitA == bitB) return new Branch(bitA, new Object[]{merge(a, b, shift + BITS)});
+        return new Branch(bitA | bitB, Integer.compareUnsigned(bitA, bitB) < 0? new Object[]{a, b}: new Object[]{b, a});
+    }
+
+    private final Object root; // null if empty
+    private final int size;
+
+    private PersistentMap(Object root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(root, hash(key), key) != null;
+    }
+
+    /**
+     * Creates a mutable map starting from this map. This map is not affected by the editor.
+     */
+    Editor<K, V> edit() {
+        return new Editor<>(root, size);
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new EntrySet<>(root, size);
+    }
+
+    @Override
+    public V get(Object key) {
+        Leaf<K, V> l = find(root, hash(key), key);
+        return l == null? null: l.value;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
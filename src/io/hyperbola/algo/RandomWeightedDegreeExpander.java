@@ -0,0 +1,20 @@
+package io.hyperbola.algo;
+import io.hyperbola.base.Variable;
+import io.hyperbola.stream.Selector;
+
+public class RandomWeightedDegreeExpander extends WeightedDegreeExpander {
+
+    public RandomWeightedDegreeExpander(ConstraintWeights weights) {
+        super(weights);
+    }
+
+    @Override
+    protected Selector<Variable> findElect() {
+        return Selector.random();
+    }
+
+    @Override
+    protected boolean randomSort() {
+        return true;
+    }
+}
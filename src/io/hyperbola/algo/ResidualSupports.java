@@ -0,0 +1,54 @@
+package io.hyperbola.algo;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import io.hyperbola.base.Dictionary;
+import io.hyperbola.base.Domain;
+import io.hyperbola.base.Variable;
+import io.hyperbola.base.VariableSurveyResult;
+import static io.hyperbola.algo.IntersectJudger.intersectAt;
+
+/**
+ * Residual supports used by the AC-3rm algorithm. For each arc and each word in the domain of the subject variable,
+ * the last word found in the domain of the object variable having the same letter at the cross is cached. Since the
+ * crosses never change, a cached support stays a support forever; only its presence in the current domain has to be
+ * checked, and the domain of the object is scanned again only if the cached support has been pruned.
+ *
+ * Supports are shared by all nodes of a search tree and are never restored on backtracking. Concurrent updates are
+ * harmless since every cached support is checked before it is used.
+ */
+final class ResidualSupports {
+
+    private final Map<Variable, Map<Variable, int[]>> supports; // subject -> object -> word id -> support id
+
+    ResidualSupports(VariableSurveyResult varSet, Dictionary dictionary) {
+        supports = new HashMap<>(varSet.variables.size());
+        for (Variable v: varSet.variables) {
+            Map<Variable, int[]> map = new HashMap<>(v.getNeighborCount());
+            for (Variable n: v.getNeighbors()) {
+                int[] ids = new int[dictionary.getWordsByLength(v.length()).size()];
+                Arrays.fill(ids, -1);
+                map.put(n, ids);
+            }
+            supports.put(v, map);
+        }
+    }
+
+    /**
+     * Removes the words in the domain of the subject having no support in the domain of the object.
+     * @return the revised domain of the subject; or the domain itself if nothing is removed
+     */
+    Domain revise(Variable subject, Domain domain, Variable object, Domain objectDomain) {
+        int[] cached = supports.get(subject).get(object);
+        int indexOfSubject = intersectAt(subject, object);
+        int indexOfObject = intersectAt(object, subject);
+        return domain.filterById(id -> {
+            int support = cached[id];
+            if (support >= 0 && objectDomain.containsId(support)) return true;
+            support = objectDomain.firstIdByLetterAt(indexOfObject, domain.getWord(id).charAt(indexOfSubject));
+            if (support < 0) return false;
+            cached[id] = support;
+            return true;
+        });
+    }
+}
@@ -0,0 +1,133 @@
+package io.hyperbola.algo;
+import java.util.Objects;
+import java.util.function.LongUnaryOperator;
+import io.hyperbola.base.Board;
+
+/**
+ * A puzzle iterator implementing DFS with restarts. The searching restarts from the root whenever the count of failures
+ * since the last restart reaches a budget, and the budget of the i-th run is given by a schedule, e.g. {@link
+ * #luby(long)} or {@link #geometric(long, double)}. Restarting is useful only if the expander is randomized or learns
+ * from failures, like {@link RandomThreeInOneExpander} or {@link WeightedDegreeExpander}; the same expander is used in
+ * all runs, so what it learned is kept across restarts.
+ *
+ * Once a solution is found, the searching never restarts again, so every solution is reported exactly once. If a run
+ * ends before or right when its budget is used up, the puzzle has no solutions and the searching ends. Steps are counted across all
+ * runs.
+ */
+public class RestartingPuzzleIterator implements PuzzleIterator {
+
+    /**
+     * Queries a geometric schedule, in which the i-th budget is the first budget times the ratio to the power i.
+     * @param first the budget of the first run
+     * @param ratio the ratio of a budget to the former one
+     * @throws IllegalArgumentException if the first budget is not positive or the ratio is less than one
+     */
+    public static LongUnaryOperator geometric(long first, double ratio) {
+        if (first <= 0 || ratio < 1) throw new IllegalArgumentException();
+        return i -> (long) Math.min(Long.MAX_VALUE, first * Math.pow(ratio, i));
+    }
+
+    /**
+     * Queries the Luby schedule, in which the budgets are the unit times 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, ...
+     * @param unit the unit of budgets
+     * @throws IllegalArgumentException if the unit is not positive
+     */
+    public static LongUnaryOperator luby(long unit) {
+        if (unit <= 0) throw new IllegalArgumentException();
+        return i -> unit * lubyTerm(i + 1);
+    }
+
+    /**
+     * Queries the i-th term of the Luby sequence, where i starts from 1.
+     */
+    private static long lubyTerm(long i) {
+        // Let 2^(k-1) <= i < 2^k. If i = 2^k - 1, the term is 2^(k-1); otherwise it equals the term at i - 2^(k-1) + 1
+        while (true) {
+            int k = 64 - Long.numberOfLeadingZeros(i);
+            if (i == (1L << k) - 1) return 1L << (k - 1);
+            i -= (1L << (k - 1)) - 1;
+        }
+    }
+
+    private final Expander ea;
+    private final AbstractNode root;
+    private final LongUnaryOperator schedule;
+    private long budget, failures = 0, formerSteps = 0;
+    private int maxSize = 0, restarts = 0;
+    private DepthFirstPuzzleIterator run, former = null;
+    private boolean solved = false;
+
+    /**
+     * Creates an iterator restarting by the Luby schedule with a unit of 100 failures.
+     * @param root      root node
+     * @param algorithm expander determining the offspring of each node
+     */
+    public RestartingPuzzleIterator(AbstractNode root, Expander algorithm) {
+        this(root, algorithm, luby(100));
+    }
+
+    /**
+     * Creates an iterator.
+     * @param root      root node
+     * @param algorithm expander determining the offspring of each node
+     * @param schedule  the budget of failures of the i-th run, where i starts from 0
+     */
+    public RestartingPuzzleIterator(AbstractNode root, Expander algorithm, LongUnaryOperator schedule) {
+        this.root = Objects.requireNonNull(root);
+        this.ea = algorithm;
+        this.schedule = schedule;
+        this.budget = schedule.applyAsLong(0);
+        this.run = new DepthFirstPuzzleIterator(root, algorithm, true);
+    }
+
+    @Override
+    public Board currentBoard() {
+        // Right after a restart, the current state is the failure ending the former run
+        return run.step() == 0 && former != null? former.currentBoard(): run.currentBoard();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return run.hasNext();
+    }
+
+    @Override
+    public int maxStackSize() {
+        return Math.max(maxSize, run.maxStackSize());
+    }
+
+    @Override
+    public int next() {
+        int result = run.next();
+        if (result == SOLUTION) solved = true;
+        // A failure ending the whole tree proves there are no more solutions, so it never restarts
+        if (result != FAILURE || solved || ++failures < budget || !run.hasNext()) return result;
+
+        // Restarts
+        formerSteps += run.step();
+        maxSize = Math.max(maxSize, run.maxStackSize());
+        restarts++;
+        failures = 0;
+        budget = schedule.applyAsLong(restarts);
+        former = run;
+        run = new DepthFirstPuzzleIterator(root, ea, true);
+        return result;
+    }
+
+    /**
+     * Queries the count of restarts so far.
+     */
+    public int restartCount() {
+        return restarts;
+    }
+
+    @Override
+    public int stackSize() {
+        return run.stackSize();
+    }
+
+    @Override
+    public long step() {
+        return formerSteps + run.step();
+    }
+}
@@ -2,8 +2,9 @@ package io.hyperbola.algo;
 import java.util.Collection;
 import java.util.List;
 import io.hyperbola.base.Assignment;
+import io.hyperbola.base.Domain;
 import io.hyperbola.base.Variable;
-import io.hyperbola.stream.Filterer;
+import io.hyperbola.stream.KeyFilterer;
 import io.hyperbola.stream.LayerFilterer;
 import io.hyperbola.stream.Selector;
 import static io.hyperbola.algo.DegreeHeuristicExpander.DEGREE_HEURISTIC_FILTER;
@@ -27,27 +28,46 @@ public abstract class ThreeInOneExpander implements Expander {
 
     public static final boolean DGH_MRV_LCV = true;
     public static final boolean MRV_DGH_LCV = false;
-    private Filterer<Variable> first, second;
+    private KeyFilterer<Variable> first, second;
+    private Selector<Variable> pipeline = null;
+    private boolean policy;
 
     public ThreeInOneExpander(boolean policy) {
+        this.policy = policy;
         this.first = policy == MRV_DGH_LCV? MINIMUM_REMAINING_VALUE_FILTER: DEGREE_HEURISTIC_FILTER;
         this.second = policy == MRV_DGH_LCV? DEGREE_HEURISTIC_FILTER: MINIMUM_REMAINING_VALUE_FILTER;
     }
 
     @Override
     public List<Assignment> assign(AbstractNode successor) {
-        Collection<Variable> unassignedVars = successor.peekUnassignedVariables();
-        Variable elect = new LayerFilterer<Variable>().then(first)       // Step (1)
-                                                      .then(second)      // Step (2)
-                                                      .then(findElect()) // Step (3)
-                                                      .select(unassignedVars, successor);
+        Variable elect;
+        if (policy == MRV_DGH_LCV) {
+            // Steps (1) and (2) are answered by the node, which may keep the variables in order
+            List<Variable> candidates = successor.peekMinimumRemainingValueMaximumDegreeVariables();
+            elect = findElect().select(candidates, successor); // Step (3)
+        } else {
+            Collection<Variable> unassignedVars = successor.peekUnassignedVariables();
+            elect = pipeline().select(unassignedVars, successor); // Steps (1) to (3)
+        }
         if (elect == null) return List.of();
         // Step (4)
-        List<String> wordCandidates = successor.peekDomainOf(elect);
-        List<String> wordsInLcvOrder = lcv(elect, wordCandidates, successor, randomSort());
+        Domain wordCandidates = successor.peekDomainOf(elect);
+        Collection<String> wordsInLcvOrder = lcv(elect, wordCandidates, successor, randomSort());
         return Expander.matchWords(elect, wordsInLcvOrder, randomSort());
     }
 
+    /**
+     * Queries steps (1) to (3) compiled into a single pass. It is compiled when first queried and then kept.
+     */
+    private Selector<Variable> pipeline() {
+        if (pipeline == null) {
+            pipeline = new LayerFilterer<Variable>().then(first)          // Step (1)
+                                                    .then(second)         // Step (2)
+                                                    .compile(findElect()); // Step (3)
+        }
+        return pipeline;
+    }
+
     protected abstract Selector<Variable> findElect();
 
     protected abstract boolean randomSort();
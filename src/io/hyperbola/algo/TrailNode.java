@@ -0,0 +1,192 @@
+package io.hyperbola.algo;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import io.hyperbola.base.*;
+import io.hyperbola.base.Dictionary;
+
+/**
+ * A mutable node used by {@link TrailPuzzleIterator}. Instead of generating a new node for every assignment, this only
+ * node is assigned in place, and the former domain and neighbors of every changed variable are recorded on a trail so
+ * that the node can be restored when the searching backtracks. Forward checking is supported and it is just an option.
+ *
+ * The unassigned variables are also kept in a {@link VariableBucketQueue} ordered by MRV and then degree heuristic.
+ * An assignment or an undo re-keys only the variables it changes, so the variables elected by such heuristics are
+ * found without scanning all unassigned variables.
+ *
+ * This node does not know its successor; it mainly serves as the state queried by {@link Expander}s. It can still be
+ * expanded to a new node, which is built by copying the current state into a {@link BasicNode}; such a copy is as
+ * costly as generating a node in {@link DepthFirstPuzzleIterator}, and is independent of later changes of this node.
+ */
+class TrailNode extends AbstractNode {
+
+    /**
+     * The domain and unassigned neighbors of a variable before they were changed.
+     */
+    private static final class Entry {
+
+        final Domain domain;
+        final List<Variable> neighbors;
+        final Variable variable;
+
+        Entry(Variable variable, Domain domain, List<Variable> neighbors) {
+            this.variable = variable;
+            this.domain = domain;
+            this.neighbors = neighbors;
+        }
+    }
+
+    private final boolean forwardCheck;
+    private final VariableBucketQueue queue;
+    private final List<Entry> trail = new ArrayList<>();
+    private final Map<Variable, Domain> unassigned;
+    private final Map<Variable, List<Variable>> unassignedNeighbors;
+    private final int wBoard, hBoard;
+    private PartialSolution path = PartialSolution.EMPTY;
+    private Variable wipedOut = null;
+
+    /**
+     * Creates a node in which no variable is assigned.
+     * @param varSet              variables and board dimensions data
+     * @param dictionary          dictionary to be used
+     * @param requireForwardCheck set to true to reject assignments resulting in some variable having empty domain
+     */
+    TrailNode(VariableSurveyResult varSet, Dictionary dictionary, boolean requireForwardCheck) {
+        wBoard = varSet.boardWidth;
+        hBoard = varSet.boardHeight;
+        unassigned = new HashMap<>(createRootVarDomainMap(varSet, dictionary));
+        unassignedNeighbors = new HashMap<>(createRootVarNeighborsMap(varSet));
+        forwardCheck = requireForwardCheck;
+        int maxDomainSize = 0;
+        for (Domain d: unassigned.values()) maxDomainSize = Math.max(maxDomainSize, d.size());
+        queue = new VariableBucketQueue(varSet.variables, maxDomainSize);
+        for (Variable v: varSet.variables) requeue(v);
+    }
+
+    /**
+     * Performs an assignment in place. If forward checking is enabled and the assignment results in some variable
+     * having empty domain, this node remains unchanged.
+     * @param cache cache shared by the assignments performed on the current state; or null if not to cache
+     * @return true if the assignment is performed; false if it is rejected by forward checking
+     */
+    boolean assign(Assignment assignment, DomainFilterCache cache) {
+        int mark = mark();
+        Variable assignedVar = assignment.variable;
+        for (Variable n: unassignedNeighbors.get(assignedVar)) {
+            trail.add(new Entry(n, unassigned.get(n), unassignedNeighbors.get(n)));
+        }
+        trail.add(new Entry(assignedVar, unassigned.get(assignedVar), unassignedNeighbors.get(assignedVar)));
+        try {
+            updateVarDomainAndVarNeighborsMap(assignment, unassigned, unassignedNeighbors, forwardCheck, cache);
+        } catch (EmptyDomainException e) {
+            undo(mark);
+            wipedOut = e.getVariable();
+            return false;
+        }
+        queue.remove(assignedVar);
+        for (int i = mark; i < trail.size() - 1; i++) requeue(trail.get(i).variable);
+        path = path.plus(assignment);
+        return true;
+    }
+
+    /**
+     * Queries the variable whose domain is emptied by the latest assignment rejected by forward checking.
+     */
+    Variable lastWipedOut() {
+        return wipedOut;
+    }
+
+    /**
+     * Queries the current position of the trail, which can be passed to {@link #undo(int)} to restore this node.
+     */
+    int mark() {
+        return trail.size();
+    }
+
+    /**
+     * Restores this node to the state when the given mark is queried.
+     */
+    void undo(int mark) {
+        Entry e;
+        for (int i = trail.size() - 1; i >= mark; i--) {
+            e = trail.remove(i);
+            // The entry of the assigned variable is the last one recorded by an assignment
+            if (path.assignment != null && path.assignment.variable == e.variable) path = path.previous;
+            unassigned.put(e.variable, e.domain);
+            unassignedNeighbors.put(e.variable, e.neighbors);
+            requeue(e.variable);
+        }
+    }
+
+    /**
+     * Puts an unassigned variable into the queue by its current domain size and count of unassigned neighbors.
+     */
+    private void requeue(Variable variable) {
+        queue.put(variable, unassigned.get(variable).size(), unassignedNeighbors.get(variable).size());
+    }
+
+    /**
+     * Queries the assignments performed so far. The returned one remains valid after this node is changed.
+     */
+    @Override
+    PartialSolution peekPartialSolution() {
+        return path;
+    }
+
+    /**
+     * Generates an offspring node from the current state. This node remains unchanged.
+     * @throws EmptyDomainException if forward checking is enabled and the assignment results in some variable having
+     *                              empty domain
+     */
+    @Override
+    public BasicNode expand(Assignment assignment) {
+        BasicNode copy = new BasicNode(new HashMap<>(unassigned),
+                                       new HashMap<>(unassignedNeighbors),
+                                       path,
+                                       wBoard,
+                                       hBoard,
+                                       forwardCheck);
+        return copy.expand(assignment);
+    }
+
+    @Override
+    protected int getBoardHeight() {
+        return hBoard;
+    }
+
+    @Override
+    protected int getBoardWidth() {
+        return wBoard;
+    }
+
+    @Override
+    protected List<Variable> peekMinimumRemainingValueMaximumDegreeVariables() {
+        return queue.minimumRemainingValueMaximumDegreeVariables();
+    }
+
+    @Override
+    protected List<Variable> peekMinimumRemainingValueVariables() {
+        return queue.minimumRemainingValueVariables();
+    }
+
+    @Override
+    protected Map<Variable, Domain> peekUnassignedVariableDomainMap() {
+        return unassigned;
+    }
+
+    @Override
+    protected Map<Variable, List<Variable>> peekUnassignedVariableNeighborsMap() {
+        return unassignedNeighbors;
+    }
+
+    @Override
+    public Assignment getAssignment() {
+        return path.assignment;
+    }
+
+    @Override
+    public Node getSuccessor() {
+        return null;
+    }
+}
@@ -0,0 +1,135 @@
+package io.hyperbola.algo;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import io.hyperbola.base.Assignment;
+import io.hyperbola.base.Board;
+import io.hyperbola.base.Dictionary;
+import io.hyperbola.base.VariableSurveyResult;
+
+/**
+ * A puzzle iterator implementing DFS on a single mutable node. Rather than copying the whole node for every offspring,
+ * the node is assigned in place and the changes are undone when the searching backtracks, so the memory used is
+ * proportional to the depth of searching instead of the count of nodes in the stack.
+ *
+ * The nodes are visited in exactly the same order as {@link DepthFirstPuzzleIterator} visits {@link BasicNode}s with
+ * the same expander and forward checking option. The stack of this iterator holds the assignments that are not tried
+ * yet; some of them may be rejected by forward checking when they are tried.
+ */
+public class TrailPuzzleIterator implements PuzzleIterator {
+
+    /**
+     * Ordered assignments of an expanded node, and the trail mark to restore that node. All the assignments are
+     * performed on the same state, and hence share a cache.
+     */
+    private static final class Frame {
+
+        final List<Assignment> assignments;
+        final DomainFilterCache cache = new DomainFilterCache();
+        final int mark;
+        int cursor = 0;
+
+        Frame(List<Assignment> assignments, int mark) {
+            this.assignments = assignments;
+            this.mark = mark;
+        }
+    }
+
+    private final Expander ea;
+    private final Deque<Frame> frames = new ArrayDeque<>();
+    private final TrailNode node;
+    private int maxSize = 1;
+    private boolean pending = true; // whether the node is waiting to be visited
+    private long step = 0;
+    private PartialSolution visited = PartialSolution.EMPTY;
+
+    /**
+     * Creates an iterator.
+     * @param varSet              variables and board dimensions data
+     * @param dictionary          dictionary to be used
+     * @param requireForwardCheck set to true to enable forward checking
+     * @param algorithm           expander determining the assignments of each node
+     */
+    public TrailPuzzleIterator(VariableSurveyResult varSet,
+                               Dictionary dictionary,
+                               boolean requireForwardCheck,
+                               Expander algorithm) {
+        this.ea = algorithm;
+        this.node = new TrailNode(varSet, dictionary, requireForwardCheck);
+    }
+
+    /**
+     * Tries the remaining assignments of a frame until one of them is performed.
+     * @return true if an assignment is performed; false if no assignments remain
+     */
+    private boolean advance(Frame f) {
+        Assignment a;
+        while (f.cursor < f.assignments.size()) {
+            a = f.assignments.get(f.cursor++);
+            if (node.assign(a, f.cache)) return true;
+            ea.onEmptyDomain(a, node.lastWipedOut());
+        }
+        return false;
+    }
+
+    /**
+     * Restores the node to the latest expanded node having an untried assignment, and performs that assignment. If no
+     * such node exists, the searching ends.
+     */
+    private void backtrack() {
+        Frame f;
+        while ((f = frames.peek()) != null) {
+            node.undo(f.mark);
+            if (advance(f)) return;
+            frames.pop();
+        }
+        pending = false;
+    }
+
+    @Override
+    public Board currentBoard() {
+        if (step == 0) return null;
+        return visited.toBoard(node.getBoardWidth(), node.getBoardHeight());
+    }
+
+    @Override
+    public boolean hasNext() {
+        return pending;
+    }
+
+    @Override
+    public int maxStackSize() {
+        return maxSize;
+    }
+
+    @Override
+    public int next() {
+        // If no node is pending, the searching is ended.
+        if (!pending) throw new IllegalStateException();
+
+        step++;
+        visited = node.peekPartialSolution();
+        Frame f = new Frame(ea.assign(node), node.mark());
+        if (advance(f)) {
+            frames.push(f);
+            maxSize = Math.max(maxSize, stackSize());
+            return UNKNOWN;
+        }
+
+        int result = node.isSolution()? SOLUTION: FAILURE;
+        backtrack();
+        return result;
+    }
+
+    @Override
+    public int stackSize() {
+        int size = pending? 1: 0;
+        for (Frame f: frames) size += f.assignments.size() - f.cursor;
+        return size;
+    }
+
+    @Override
+    public long step() {
+        return step;
+    }
+}
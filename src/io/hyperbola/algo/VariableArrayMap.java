@@ -0,0 +1,102 @@
+package io.hyperbola.algo;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import io.hyperbola.base.Variable;
+
+/**
+ * An unmodifiable map view of an array indexed by {@link Variable#getId() variable ids}. A variable is mapped if its
+ * item in the array is not null. Looking up a variable is just an array access, and entries are iterated in the order
+ * of ids.
+ *
+ * The view reflects later changes of the array; the count of mapped variables must be given since it is not tracked
+ * by this map.
+ */
+final class VariableArrayMap<V> extends AbstractMap<Variable, V> {
+
+    private final List<Variable> variables;
+    private final V[] values;
+    private final int size;
+
+    /**
+     * Creates a view.
+     * @param variables all variables, where the i-th one has id i
+     * @param values    values indexed by variable ids
+     * @param size      count of non-null values
+     */
+    VariableArrayMap(List<Variable> variables, V[] values, int size) {
+        this.variables = variables;
+        this.values = values;
+        this.size = size;
+    }
+
+    private int indexOf(Object o) {
+        if (o instanceof Variable) {
+            int id = ((Variable) o).getId();
+            if (id >= 0 && id < values.length && variables.get(id).equals(o)) return id;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int id = indexOf(key);
+        return id >= 0 && values[id] != null;
+    }
+
+    @Override
+    public Set<Entry<Variable, V>> entrySet() {
+        return new AbstractSet<>() {
+
+            @Override
+            public Iterator<Entry<Variable, V>> iterator() {
+                return new Iterator<>() {
+
+                    private int next = seek(0);
+
+                    private int seek(int from) {
+                        while (from < values.length && values[from] == null) from++;
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < values.length;
+                    }
+
+                    @Override
+                    public Entry<Variable, V> next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        Entry<Variable, V> e = new SimpleImmutableEntry<>(variables.get(next), values[next]);
+                        next = seek(next + 1);
+                        return e;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public V get(Object key) {
+        int id = indexOf(key);
+        return id < 0? null: values[id];
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
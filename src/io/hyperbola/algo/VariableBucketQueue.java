@@ -0,0 +1,119 @@
+package io.hyperbola.algo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import io.hyperbola.base.Variable;
+
+/**
+ * A bucket queue of variables keyed by their domain sizes and then by their counts of unassigned neighbors negated,
+ * that is, in the order of MRV and then degree heuristic. Each key has a bucket, which is a doubly linked list of
+ * variable ids, so putting or removing a variable takes constant time. The non-empty buckets are marked in a bitset, so
+ * the lowest non-empty bucket is found by skipping 64 empty buckets at a time, without scanning any variables. The
+ * lowest word of the bitset which may be non-zero is kept, and moves down only when a variable is put below it, so the
+ * scan starts from there instead of the first word. The queried variables are put into a list reused by every query,
+ * so no lists are built while searching.
+ *
+ * The variables must be built by {@link Variable.Builder} so that they are given ids.
+ */
+final class VariableBucketQueue {
+
+    private final int degreeRange;    // count of distinct counts of unassigned neighbors
+    private final int[] heads;        // [bucket] -> first variable id; or -1 if empty
+    private final int[] keys;         // [variable id] -> bucket; or -1 if not in this queue
+    private final int[] next, prev;   // [variable id] -> next and previous variable ids in the bucket; or -1
+    private final long[] occupied;    // [bucket / 64] -> bitset of non-empty buckets
+    private final List<Variable> passed = new ArrayList<>();
+    private final List<Variable> variables;
+    private int low = 0;              // words of the bitset below which are all zero
+
+    /**
+     * Creates an empty queue.
+     * @param variables     all variables, where the i-th one has id i
+     * @param maxDomainSize max domain size of all variables
+     */
+    VariableBucketQueue(List<Variable> variables, int maxDomainSize) {
+        int maxDegree = 0;
+        for (Variable v: variables) maxDegree = Math.max(maxDegree, v.getNeighborCount());
+        this.variables = variables;
+        degreeRange = maxDegree + 1;
+        heads = new int[(maxDomainSize + 1) * degreeRange];
+        occupied = new long[(heads.length + 63) >>> 6];
+        keys = new int[variables.size()];
+        next = new int[variables.size()];
+        prev = new int[variables.size()];
+        Arrays.fill(heads, -1);
+        Arrays.fill(keys, -1);
+    }
+
+    /**
+     * Queries the variables having the fewest words in their domains.
+     * @return a list shared by all queries, which is valid only until this queue is queried or changed; it is empty if
+     * this queue is empty
+     */
+    List<Variable> minimumRemainingValueVariables() {
+        passed.clear();
+        int from = lowest();
+        if (from == heads.length) return passed;
+        int to = from - from % degreeRange + degreeRange;
+        for (int b = from; b < to; b++) {
+            for (int id = heads[b]; id >= 0; id = next[id]) passed.add(variables.get(id));
+        }
+        return passed;
+    }
+
+    /**
+     * Queries the variables having the fewest words in their domains, and then the most unassigned neighbors.
+     * @return a list shared by all queries, which is valid only until this queue is queried or changed; it is empty if
+     * this queue is empty
+     */
+    List<Variable> minimumRemainingValueMaximumDegreeVariables() {
+        passed.clear();
+        int b = lowest();
+        if (b == heads.length) return passed;
+        for (int id = heads[b]; id >= 0; id = next[id]) passed.add(variables.get(id));
+        return passed;
+    }
+
+    /**
+     * Puts a variable into this queue, or moves it if it is already in this queue.
+     * @param domainSize               domain size of the variable
+     * @param unassignedNeighborsCount count of unassigned neighbors of the variable
+     */
+    void put(Variable variable, int domainSize, int unassignedNeighborsCount) {
+        int id = variable.getId();
+        int key = domainSize * degreeRange + degreeRange - 1 - unassignedNeighborsCount;
+        if (keys[id] == key) return;
+        remove(variable);
+        keys[id] = key;
+        prev[id] = -1;
+        next[id] = heads[key];
+        if (heads[key] >= 0) prev[heads[key]] = id;
+        heads[key] = id;
+        occupied[key >>> 6] |= 1L << key;
+        low = Math.min(low, key >>> 6);
+    }
+
+    /**
+     * Removes a variable from this queue. Nothing happens if it is not in this queue.
+     */
+    void remove(Variable variable) {
+        int id = variable.getId(), key = keys[id];
+        if (key < 0) return;
+        if (prev[id] >= 0) next[prev[id]] = next[id];
+        else if ((heads[key] = next[id]) < 0) occupied[key >>> 6] &= ~(1L << key);
+        if (next[id] >= 0) prev[next[id]] = prev[id];
+        keys[id] = -1;
+    }
+
+    /**
+     * Queries the lowest non-empty bucket. The scan starts from the lowest word which may be non-zero, and the empty
+     * words skipped are not scanned again until a variable is put there.
+     * @return such bucket; or the count of buckets if this queue is empty
+     */
+    private int lowest() {
+        for (; low < occupied.length; low++) {
+            if (occupied[low] != 0) return low << 6 | Long.numberOfTrailingZeros(occupied[low]);
+        }
+        return heads.length;
+    }
+}
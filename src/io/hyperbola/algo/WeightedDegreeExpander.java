@@ -0,0 +1,74 @@
+package io.hyperbola.algo;
+import java.util.Collection;
+import java.util.List;
+import io.hyperbola.base.Assignment;
+import io.hyperbola.base.Domain;
+import io.hyperbola.base.Variable;
+import io.hyperbola.stream.LayerFilterer;
+import io.hyperbola.stream.Selector;
+import static io.hyperbola.algo.LeastConstrainingValueExpander.lcv;
+
+/**
+ * This class tries to implement the dom/wdeg heuristic. It expands a node by the following steps:
+ *
+ * Step (1): Picks the variable(s) having the least ratio of domain size to weighted degree, where the weights of
+ * constraints are learned from the failures met so far; see {@link ConstraintWeights}.
+ *
+ * Step (2): If more than one variable selects, picks the final elect by whatever method.
+ *
+ * Step (3): Sorts the words implementing LCV. The one that rules out the fewest values in the remaining variables is
+ * placed frontier.
+ *
+ * The weights are learned only if the nodes reject assignments emptying some domain, e.g. nodes with forward checking.
+ */
+public abstract class WeightedDegreeExpander implements Expander {
+
+    private final ConstraintWeights weights;
+    private Selector<Variable> pipeline = null;
+
+    /**
+     * Creates an expander.
+     * @param weights weights learned and used by this expander
+     */
+    public WeightedDegreeExpander(ConstraintWeights weights) {
+        this.weights = weights;
+    }
+
+    @Override
+    public List<Assignment> assign(AbstractNode successor) {
+        Collection<Variable> unassignedVars = successor.peekUnassignedVariables();
+        Variable elect = pipeline().select(unassignedVars, successor); // Steps (1) and (2)
+        if (elect == null) return List.of();
+        // Step (3)
+        Domain wordCandidates = successor.peekDomainOf(elect);
+        Collection<String> wordsInLcvOrder = lcv(elect, wordCandidates, successor, randomSort());
+        return Expander.matchWords(elect, wordsInLcvOrder, randomSort());
+    }
+
+    /**
+     * Queries the weights learned and used by this expander.
+     */
+    public ConstraintWeights getWeights() {
+        return weights;
+    }
+
+    @Override
+    public void onEmptyDomain(Assignment assignment, Variable variable) {
+        weights.onEmptyDomain(assignment, variable);
+    }
+
+    /**
+     * Queries steps (1) and (2) chained. It is built when first queried and then kept.
+     */
+    private Selector<Variable> pipeline() {
+        if (pipeline == null) {
+            pipeline = new LayerFilterer<Variable>().then(weights.filter()) // Step (1)
+                                                    .compile(findElect());  // Step (2)
+        }
+        return pipeline;
+    }
+
+    protected abstract Selector<Variable> findElect();
+
+    protected abstract boolean randomSort();
+}
@@ -0,0 +1,45 @@
+package io.hyperbola.app;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import com.sun.management.ThreadMXBean;
+import io.hyperbola.algo.*;
+import io.hyperbola.base.Dictionary;
+import io.hyperbola.base.VariableSurveyResult;
+
+/**
+ * Enumerates all solutions of the test data by {@link DepthFirstPuzzleIterator} and by {@link CompactPuzzleIterator},
+ * which visit the same nodes, and reports the bytes allocated on the heap per step by each of them.
+ */
+public class AllocationBenchmark {
+
+    private static final ThreadMXBean BEAN = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws IOException {
+        List<VariableSurveyResult> vsrList
+                = RuleInflater.inflate(new FileInputStream("res/homework material/puzzle.txt"));
+        Dictionary dict = new Dictionary(new FileInputStream("res/dictionary/3000 words.txt"));
+        for (int i = 0; i < 3; i++) {
+            VariableSurveyResult vsr = vsrList.get(i);
+            Expander ea = new BasicThreeInOneExpander(ThreeInOneExpander.MRV_DGH_LCV);
+            PuzzleIterator dfs = new DepthFirstPuzzleIterator(new ArrayNode(vsr, dict, true), ea);
+            run("Test data #" + (i + 1) + ", DFS:    ", dfs);
+            run("Test data #" + (i + 1) + ", compact:", new CompactPuzzleIterator(vsr, dict));
+        }
+    }
+
+    private static void run(String title, PuzzleIterator iterator) {
+        long tid = Thread.currentThread().getId();
+        long nSol = 0;
+        long bytes = BEAN.getThreadAllocatedBytes(tid);
+        long time = System.currentTimeMillis();
+        while (iterator.hasNext()) {
+            if (iterator.next() == PuzzleIterator.SOLUTION) nSol++;
+        }
+        time = System.currentTimeMillis() - time;
+        bytes = BEAN.getThreadAllocatedBytes(tid) - bytes;
+        System.out.printf("%s %d solutions, %d steps, %d ms, %d bytes, %.2f bytes/step%n",
+                          title, nSol, iterator.step(), time, bytes, (double) bytes / iterator.step());
+    }
+}
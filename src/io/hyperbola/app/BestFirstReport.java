@@ -0,0 +1,56 @@
+package io.hyperbola.app;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+import io.hyperbola.algo.*;
+import io.hyperbola.base.Board;
+import io.hyperbola.base.Dictionary;
+import io.hyperbola.base.VariableSurveyResult;
+
+/**
+ * Finds the first solution of the test data by {@link DepthFirstPuzzleIterator} and by {@link BestFirstPuzzleIterator}
+ * with each score, and reports the steps taken and whether the solutions found by the latter are the same as by DFS.
+ */
+public class BestFirstReport {
+
+    public static void main(String[] args) throws IOException {
+        List<VariableSurveyResult> vsrList
+                = RuleInflater.inflate(new FileInputStream("res/homework material/puzzle.txt"));
+        Dictionary dict = new Dictionary(new FileInputStream("res/dictionary/1000 words.txt"));
+        for (int i = 0; i < 4; i++) {
+            VariableSurveyResult vsr = vsrList.get(i);
+            String title = "Test data #" + (i + 1);
+            Board first = run(title + ", DFS:        ",
+                              new DepthFirstPuzzleIterator(new BasicNode(vsr, dict, true), expander()), null);
+            run(title + ", filled cells:", bestFirst(vsr, dict, BestFirstPuzzleIterator.FILLED_CELLS), first);
+            run(title + ", domain sizes:", bestFirst(vsr, dict, BestFirstPuzzleIterator.LOG_DOMAIN_SIZE_SUM), first);
+        }
+    }
+
+    private static PuzzleIterator bestFirst(VariableSurveyResult vsr,
+                                            Dictionary dict,
+                                            ToDoubleFunction<AbstractNode> score) {
+        return new BestFirstPuzzleIterator(new BasicNode(vsr, dict, true), expander(), score);
+    }
+
+    private static Expander expander() {
+        return new BasicThreeInOneExpander(ThreeInOneExpander.MRV_DGH_LCV);
+    }
+
+    /**
+     * Finds the first solution and reports it.
+     * @param expected the first solution found by DFS; or null if this is DFS
+     * @return the first solution; or null if there are no solutions
+     */
+    private static Board run(String title, PuzzleIterator iterator, Board expected) {
+        if (!iterator.nextSolution()) {
+            System.out.println(title + " no solutions");
+            return null;
+        }
+        Board first = iterator.currentBoard();
+        String same = expected == null? "": expected.toString().equals(first.toString())? ", same as DFS": ", not as DFS";
+        System.out.println(title + " first solution at step " + iterator.step() + same);
+        return first;
+    }
+}
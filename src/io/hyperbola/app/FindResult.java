@@ -18,14 +18,14 @@ public class FindResult {
 
             BasicNode n = new BasicNode(vsr, dict, false);
             Expander e = new BasicExpander();
-            PuzzleIterator pi = new DepthFirstPuzzleIterator(n, e);
+            PuzzleIterator pi = new DepthFirstPuzzleIterator(n, e, true);
             pi.nextSolution();
             System.out.println(pi.currentBoard().toHtml());
 
             n = new BasicNode(vsr, dict, false);
             Expander er = new RandomThreeInOneExpander(MRV_DGH_LCV);
             for (int z = 0; z < 3; z++) {
-                pi = new DepthFirstPuzzleIterator(n, er);
+                pi = new RestartingPuzzleIterator(n, er);
                 pi.nextSolution();
                 System.out.println(pi.currentBoard().toHtml());
             }
@@ -4,10 +4,15 @@ import java.util.List;
 import io.hyperbola.algo.*;
 import io.hyperbola.base.Dictionary;
 import io.hyperbola.base.VariableSurveyResult;
-import static io.hyperbola.algo.ThreeInOneExpander.MRV_DGH_LCV;
 
+/**
+ * Counts the solutions of the test data by {@link MemoizingSolutionCounter}. If the argument "dfs" is given, counts them
+ * by {@link DepthFirstPuzzleIterator#countSolutions()} instead, which is much slower but checks the former. If the
+ * argument "ac3" is given, counts them by the former on {@link Ac3Node}, which fills in variables on expansion.
+ */
 public class FindSolutionCount {
 
+    private static final int CACHE_CAPACITY = 1 << 20;
     static PrintWriter pw;
 
     public static void main(String[] args) throws IOException {
@@ -15,19 +20,23 @@ public class FindSolutionCount {
                 = RuleInflater.inflate(new FileInputStream("res/homework material/puzzle.txt"));
         Dictionary dict = new Dictionary(new FileInputStream("res/dictionary/3000 words.txt"));
         pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream("res/data/Solution counts.txt")));
+        String mode = args.length > 0? args[0]: "";
         for (int i = 0; i < 4; i++) {
             VariableSurveyResult vsr = vsrList.get(i);
-            find(vsr, dict, i + 1);
+            find(vsr, dict, i + 1, mode);
         }
         pw.close();
     }
 
-    private static void find(VariableSurveyResult vsr, Dictionary dict, int index) {
-        BasicNode n = new BasicNode(vsr, dict, false);
-        Expander e = new BasicThreeInOneExpander(MRV_DGH_LCV);
-        PuzzleIterator pi = new DepthFirstPuzzleIterator(n, e);
-        int nSol = 0;
-        while (pi.nextSolution()) nSol++;
+    private static void find(VariableSurveyResult vsr, Dictionary dict, int index, String mode) {
+        AbstractNode n = mode.equals("ac3")? new Ac3Node(vsr, dict): new ArrayNode(vsr, dict, true);
+        long nSol;
+        if (mode.equals("dfs")) {
+            Expander e = new BasicThreeInOneExpander(ThreeInOneExpander.MRV_DGH_LCV);
+            nSol = new DepthFirstPuzzleIterator(n, e).countSolutions();
+        } else {
+            nSol = new MemoizingSolutionCounter(n, CACHE_CAPACITY).count();
+        }
         pw.println("Test data #" + index + " has " + nSol + " solutions.");
         System.out.println("Test data #" + index + " has " + nSol + " solutions.");
     }
@@ -0,0 +1,48 @@
+package io.hyperbola.app;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.List;
+import io.hyperbola.algo.*;
+import io.hyperbola.base.Dictionary;
+import io.hyperbola.base.VariableSurveyResult;
+
+/**
+ * Enumerates all leaves of the test data by {@link DepthFirstPuzzleIterator} and by {@link
+ * LimitedDiscrepancyPuzzleIterator} on each kind of node, and reports whether the latter finds as many solutions and
+ * failures as DFS does.
+ */
+public class LimitedDiscrepancyReport {
+
+    public static void main(String[] args) throws IOException {
+        List<VariableSurveyResult> vsrList
+                = RuleInflater.inflate(new FileInputStream("res/homework material/puzzle.txt"));
+        Dictionary dict = new Dictionary(new FileInputStream("res/dictionary/500 words.txt"));
+        for (int i = 0; i < 4; i++) {
+            VariableSurveyResult vsr = vsrList.get(i);
+            String title = "Test data #" + (i + 1);
+            compare(title + ", forward checking:", new BasicNode(vsr, dict, true));
+            compare(title + ", AC-3:            ", new Ac3Node(vsr, dict));
+        }
+    }
+
+    private static void compare(String title, AbstractNode root) {
+        long[] dfs = run(new DepthFirstPuzzleIterator(root, new BasicExpander()));
+        long[] lds = run(new LimitedDiscrepancyPuzzleIterator(root, new BasicExpander()));
+        String same = dfs[0] == lds[0] && dfs[1] == lds[1]? "same as DFS": "not as DFS";
+        System.out.printf("%s %d solutions, %d failures by DFS; %d solutions, %d failures by LDS, %s%n",
+                          title, dfs[0], dfs[1], lds[0], lds[1], same);
+    }
+
+    /**
+     * Counts the solutions and the failures.
+     */
+    private static long[] run(PuzzleIterator iterator) {
+        long[] counts = new long[2];
+        int result;
+        while ((result = iterator.nextResult()) != PuzzleIterator.NONE) {
+            if (result == PuzzleIterator.SOLUTION) counts[0]++;
+            else counts[1]++;
+        }
+        return counts;
+    }
+}
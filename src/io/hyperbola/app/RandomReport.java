@@ -105,6 +105,27 @@ public class RandomReport {
         test("Basic " + testName, node, oBsc, 'S');
         test("Basic " + testName, node, rBsc, 'R');
 
+        bar();
+        node = new PersistentBasicNode(vsr, dict, true);
+        testName = "Persistent FC";
+        test("MRV-DGH-LCV " + testName, node, oMrvDghLcv, 'S');
+        test("MRV-DGH-LCV " + testName, node, rMrvDghLcv, 'R');
+        println("");
+        test("DGH-MRC-LCV " + testName, node, oDghMrvLcv, 'S');
+        test("DGH-MRC-LCV " + testName, node, rDghMrvLcv, 'R');
+        println("");
+        test("MRV " + testName, node, oMrv, 'S');
+        test("MRV " + testName, node, rMrv, 'R');
+        println("");
+        test("DGH " + testName, node, oDgh, 'S');
+        test("DGH " + testName, node, rDgh, 'R');
+        println("");
+        test("LCV " + testName, node, oLcv, 'S');
+        test("LCV " + testName, node, rLcv, 'R');
+        println("");
+        test("Basic " + testName, node, oBsc, 'S');
+        test("Basic " + testName, node, rBsc, 'R');
+
         bar();
         node = new Ac3Node(vsr, dict);
         testName = "AC-3";
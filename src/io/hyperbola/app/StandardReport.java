@@ -90,6 +90,21 @@ public class StandardReport {
         println("");
         test("Basic " + testName, node, oBsc);
 
+        bar();
+        node = new ArrayNode(vsr, dict, true);
+        testName = "Array FC";
+        test("MRV-DGH-LCV " + testName, node, oMrvDghLcv);
+        println("");
+        test("DGH-MRC-LCV " + testName, node, oDghMrvLcv);
+        println("");
+        test("MRV " + testName, node, oMrv);
+        println("");
+        test("DGH " + testName, node, oDgh);
+        println("");
+        test("LCV " + testName, node, oLcv);
+        println("");
+        test("Basic " + testName, node, oBsc);
+
         bar();
         node = new Ac3Node(vsr, dict);
         testName = "AC-3";
@@ -104,6 +119,36 @@ public class StandardReport {
         test("LCV " + testName, node, oLcv);
         println("");
         test("Basic " + testName, node, oBsc);
+
+        bar();
+        node = new ArcConsistencyNode(vsr, dict);
+        testName = "Full AC";
+        test("MRV-DGH-LCV " + testName, node, oMrvDghLcv);
+        println("");
+        test("DGH-MRC-LCV " + testName, node, oDghMrvLcv);
+        println("");
+        test("MRV " + testName, node, oMrv);
+        println("");
+        test("DGH " + testName, node, oDgh);
+        println("");
+        test("LCV " + testName, node, oLcv);
+        println("");
+        test("Basic " + testName, node, oBsc);
+
+        bar();
+        node = new ArcConsistencyNode(vsr, dict, true);
+        testName = "AC-3rm";
+        test("MRV-DGH-LCV " + testName, node, oMrvDghLcv);
+        println("");
+        test("DGH-MRC-LCV " + testName, node, oDghMrvLcv);
+        println("");
+        test("MRV " + testName, node, oMrv);
+        println("");
+        test("DGH " + testName, node, oDgh);
+        println("");
+        test("LCV " + testName, node, oLcv);
+        println("");
+        test("Basic " + testName, node, oBsc);
     }
 
     private static void test(String title, AbstractNode root, Expander e) {
@@ -4,11 +4,33 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.*;
-import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toUnmodifiableList;
 
 public final class Dictionary {
 
+    /** Count of letters A-Z. Characters outside this range are never indexed. */
+    public static final int ALPHABET_SIZE = 26;
+    private static final long[] EMPTY_BITSET = new long[0];
+
+    /**
+     * Queries the length of a bitset that is able to hold the given count of words.
+     */
+    public static int bitsetLength(int wordCount) {
+        return (wordCount + 63) >>> 6;
+    }
+
+    /**
+     * Queries the index of a letter in the alphabet.
+     * @return the index in range [0, 26); or -1 if the character is not a letter A-Z
+     */
+    public static int letterIndex(char letter) {
+        int i = letter - 'A';
+        return i >= 0 && i < ALPHABET_SIZE? i: -1;
+    }
+
     private Map<Integer, List<String>> dict; // All words are sorted A-Z
+    private Map<Integer, Domain> domains;    // Domains containing all words, one per word length
+    private Map<Integer, long[][]> letterIndex; // [position * 26 + letter] -> word bitset, one per word length
 
     public Dictionary(InputStream in) throws IOException {
         List<String> wordList = new ArrayList<>();
@@ -31,13 +53,83 @@ public final class Dictionary {
             s.add(readed.toUpperCase());
         }
         dict = new HashMap<>(map.size());
+        letterIndex = new HashMap<>(map.size());
+        domains = new HashMap<>(map.size());
         for (Map.Entry<Integer, Set<String>> e: map.entrySet()) {
-            dict.put(e.getKey(), e.getValue().stream().sorted().collect(toList()));
+            List<String> words = e.getValue().stream().sorted().collect(toUnmodifiableList());
+            dict.put(e.getKey(), words);
+            letterIndex.put(e.getKey(), buildLetterIndex(e.getKey(), words));
+        }
+        for (Map.Entry<Integer, List<String>> e: dict.entrySet()) {
+            int size = e.getValue().size();
+            long[] all = new long[bitsetLength(size)];
+            for (int id = 0; id < size; id++) all[id >>> 6] |= 1L << id;
+            domains.put(e.getKey(), new Domain(this, e.getKey(), all, size));
         }
     }
 
+    /**
+     * Builds the positional letter index of words having identical length. The i-th bit of the bitset at [position *
+     * 26 + letter] is set if and only if the i-th word has such letter at such position. An extra empty bitset is
+     * appended for characters which are not letters.
+     */
+    private static long[][] buildLetterIndex(int length, List<String> words) {
+        int nBlock = bitsetLength(words.size());
+        long[][] index = new long[length * ALPHABET_SIZE + 1][nBlock];
+        for (int id = 0, size = words.size(); id < size; id++) {
+            String word = words.get(id);
+            for (int pos = 0; pos < length; pos++) {
+                int letter = letterIndex(word.charAt(pos));
+                if (letter < 0) continue;
+                index[pos * ALPHABET_SIZE + letter][id >>> 6] |= 1L << id;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Queries the domain containing all words having the given length.
+     */
+    public Domain getDomainByLength(int length) {
+        Domain d = domains.get(length);
+        return d == null? new Domain(this, length, EMPTY_BITSET, 0): d;
+    }
+
+    /**
+     * Queries the id of a word, that is, the index of such word in the list returned by {@link
+     * #getWordsByLength(int)}.
+     * @return the id of the word; or -1 if the word is not in this dictionary
+     */
+    public int getWordId(String word) {
+        int id = Collections.binarySearch(getWordsByLength(word.length()), word);
+        return id < 0? -1: id;
+    }
+
+    /**
+     * Queries all words having the given length. Words are sorted alphabetically and the index of a word in this list
+     * is its id.
+     * @return an unmodifiable list
+     */
     public List<String> getWordsByLength(int length) {
         List<String> s = dict.get(length);
         return s == null? List.of(): s;
     }
+
+    /**
+     * Queries the words of given length having a letter at given position. In the returned bitset, the i-th bit is set
+     * if and only if the i-th word of {@link #getWordsByLength(int)} matches. Hence filtering a set of word ids by a
+     * letter is just a bitwise AND.
+     * @param length   length of words
+     * @param position zero-based position in the word
+     * @param letter   the letter
+     * @return a bitset; which is shared and must not be modified.
+     * @throws IndexOutOfBoundsException if position is not in the range [0, length)
+     */
+    public long[] peekWordsWithLetterAt(int length, int position, char letter) {
+        if (position < 0 || position >= length) throw new IndexOutOfBoundsException();
+        long[][] index = letterIndex.get(length);
+        if (index == null) return EMPTY_BITSET;
+        int l = letterIndex(letter);
+        return l < 0? index[index.length - 1]: index[position * ALPHABET_SIZE + l];
+    }
 }
@@ -0,0 +1,278 @@
+package io.hyperbola.base;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.IntPredicate;
+import static io.hyperbola.base.Dictionary.ALPHABET_SIZE;
+import static io.hyperbola.base.Dictionary.letterIndex;
+
+/**
+ * An immutable set of words having identical length. A word is identified by its id in the {@link Dictionary}, and
+ * the set is backed by a bitset of ids; hence the size is known in constant time and filtering words by a letter at
+ * some position is just a bitwise AND. Words are iterated alphabetically, that is, in the order of their ids.
+ *
+ * Filtering methods return this domain itself if nothing is filtered out, so that unchanged domains are shared.
+ */
+public final class Domain extends AbstractCollection<String> {
+
+    private static final int ALL_LETTERS = (1 << ALPHABET_SIZE) - 1;
+
+    private final Dictionary dictionary;
+    private final int length;
+    private final long[] bits;           // unmodifiable
+    private final int size;
+    private final List<String> words;    // all words of such length, indexed by id
+    private int hash = 0;
+
+    /**
+     * Creates a domain. The bitset will not be copied.
+     * @param size count of set bits in the bitset
+     */
+    Domain(Dictionary dictionary, int length, long[] bits, int size) {
+        this.dictionary = dictionary;
+        this.length = length;
+        this.bits = bits;
+        this.size = size;
+        this.words = dictionary.getWordsByLength(length);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (o instanceof String) {
+            String word = (String) o;
+            return word.length() == length && containsId(dictionary.getWordId(word));
+        }
+        return false;
+    }
+
+    /**
+     * Queries if a word is in this domain.
+     * @param id id of the word
+     */
+    public boolean containsId(int id) {
+        return id >= 0 && id < words.size() && (bits[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * Counts the words in this domain having the given letter at the given position. No domain is created.
+     */
+    public int countByLetterAt(int position, char letter) {
+        long[] mask = dictionary.peekWordsWithLetterAt(length, position, letter);
+        int count = 0;
+        for (int i = 0; i < bits.length; i++) count += Long.bitCount(bits[i] & mask[i]);
+        return count;
+    }
+
+    /**
+     * Retains the words whose letter at the given position is in the given set of letters.
+     * @param letterMask set of letters, where the i-th bit stands for the i-th letter of the alphabet
+     * @return the filtered domain; or this domain if all words are retained
+     * @see #letterMaskAt(int)
+     */
+    public Domain filterByLetterMaskAt(int position, int letterMask) {
+        if (size < ALPHABET_SIZE * bits.length) {
+            return filterById(id -> (letterMask & letterBitOf(id, position)) != 0);
+        }
+        long[] union = new long[bits.length];
+        long[] mask;
+        for (int l = 0; l < ALPHABET_SIZE; l++) {
+            if ((letterMask & (1 << l)) == 0) continue;
+            mask = dictionary.peekWordsWithLetterAt(length, position, (char) ('A' + l));
+            for (int i = 0; i < bits.length; i++) union[i] |= mask[i];
+        }
+        return intersect(union);
+    }
+
+    /**
+     * Retains the words satisfying the given predicate.
+     * @param predicate predicate on word ids
+     * @return the filtered domain; or this domain if all words are retained
+     */
+    public Domain filterById(IntPredicate predicate) {
+        long[] filtered = null;
+        int count = size;
+        for (int id = nextId(0); id >= 0; id = nextId(id + 1)) {
+            if (predicate.test(id)) continue;
+            if (filtered == null) filtered = bits.clone();
+            filtered[id >>> 6] &= ~(1L << id);
+            count--;
+        }
+        return filtered == null? this: new Domain(dictionary, length, filtered, count);
+    }
+
+    /**
+     * Retains the words having the given letter at the given position.
+     * @return the filtered domain; or this domain if all words are retained
+     */
+    public Domain filterByLetterAt(int position, char letter) {
+        return intersect(dictionary.peekWordsWithLetterAt(length, position, letter));
+    }
+
+    /**
+     * Queries the id of the first word in this domain.
+     * @return the id; or -1 if this domain is empty
+     */
+    public int firstId() {
+        return nextId(0);
+    }
+
+    /**
+     * Queries the id of the first word in this domain having the given letter at the given position. No domain is
+     * created.
+     * @return the id; or -1 if no such word exists
+     */
+    public int firstIdByLetterAt(int position, char letter) {
+        long[] mask = dictionary.peekWordsWithLetterAt(length, position, letter);
+        long b;
+        for (int i = 0; i < bits.length; i++) {
+            b = bits[i] & mask[i];
+            if (b != 0) return (i << 6) + Long.numberOfTrailingZeros(b);
+        }
+        return -1;
+    }
+
+    /**
+     * Queries the word of given id. The word need not be in this domain.
+     */
+    public String getWord(int id) {
+        return words.get(id);
+    }
+
+    /**
+     * Retains the words which are also in another domain.
+     * @return the intersection; or this domain if all words are retained
+     * @throws IllegalArgumentException if two domains are of different dictionaries or word lengths
+     */
+    public Domain intersect(Domain another) {
+        if (another.dictionary != dictionary || another.length != length) throw new IllegalArgumentException();
+        return intersect(another.bits);
+    }
+
+    private Domain intersect(long[] mask) {
+        long[] filtered = new long[bits.length];
+        int count = 0;
+        for (int i = 0; i < bits.length; i++) {
+            filtered[i] = bits[i] & mask[i];
+            count += Long.bitCount(filtered[i]);
+        }
+        return count == size? this: new Domain(dictionary, length, filtered, count);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+
+            private int next = firstId();
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public String next() {
+                if (next < 0) throw new NoSuchElementException();
+                String word = words.get(next);
+                next = nextId(next + 1);
+                return word;
+            }
+        };
+    }
+
+    /**
+     * Counts the words in this domain by their letters at the given position. No domain is created.
+     * @return an array whose i-th item is the count of words having the i-th letter of the alphabet at such position
+     */
+    public int[] letterHistogramAt(int position) {
+        int[] histogram = new int[ALPHABET_SIZE];
+        if (size < ALPHABET_SIZE * bits.length) {
+            int l;
+            for (int id = nextId(0); id >= 0; id = nextId(id + 1)) {
+                l = letterIndex(words.get(id).charAt(position));
+                if (l >= 0) histogram[l]++;
+            }
+            return histogram;
+        }
+        for (int l = 0; l < ALPHABET_SIZE; l++) histogram[l] = countByLetterAt(position, (char) ('A' + l));
+        return histogram;
+    }
+
+    /**
+     * Queries the letters at the given position among all words in this domain.
+     * @return set of letters, where the i-th bit stands for the i-th letter of the alphabet
+     */
+    public int letterMaskAt(int position) {
+        int letterMask = 0;
+        if (size < ALPHABET_SIZE * bits.length) {
+            for (int id = nextId(0); id >= 0 && letterMask != ALL_LETTERS; id = nextId(id + 1)) {
+                letterMask |= letterBitOf(id, position);
+            }
+            return letterMask;
+        }
+        long[] mask;
+        for (int l = 0; l < ALPHABET_SIZE; l++) {
+            mask = dictionary.peekWordsWithLetterAt(length, position, (char) ('A' + l));
+            for (int i = 0; i < bits.length; i++) {
+                if ((bits[i] & mask[i]) == 0) continue;
+                letterMask |= 1 << l;
+                break;
+            }
+        }
+        return letterMask;
+    }
+
+    private int letterBitOf(int id, int position) {
+        int l = letterIndex(words.get(id).charAt(position));
+        return l < 0? 0: 1 << l;
+    }
+
+    /**
+     * Queries the length of words in this domain.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Queries the id of the first word in this domain whose id is not less than the given one.
+     * @return the id; or -1 if no such word exists
+     */
+    public int nextId(int fromId) {
+        int block = fromId >>> 6;
+        if (block >= bits.length) return -1;
+        long b = bits[block] & (-1L << fromId);
+        while (true) {
+            if (b != 0) return (block << 6) + Long.numberOfTrailingZeros(b);
+            if (++block == bits.length) return -1;
+            b = bits[block];
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int hashCode() {
+        if (hash == 0) hash = Arrays.hashCode(bits) * 31 + length;
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (o instanceof Domain) {
+            Domain d = (Domain) o;
+            return d.dictionary == dictionary && d.length == length && d.size == size && Arrays.equals(d.bits, bits);
+        }
+        return false;
+    }
+}
@@ -9,7 +9,8 @@ public final class Variable implements Comparable<Variable> {
 
     /**
      * A builder that optimizes all variable inputs, adjusting their coordinates so that the minimum x- and y-
-     * coordinates are zeros.
+     * coordinates are zeros. Each built variable is given a dense id, which is its index in {@link
+     * VariableSurveyResult#variables}.
      */
     public static class Builder {
 
@@ -64,6 +65,7 @@ public final class Variable implements Comparable<Variable> {
             });
             List<Variable> result = new ArrayList<>(varList);
             result.sort(null);
+            for (int i = 0; i < result.size(); i++) result.get(i).id = i;
             VariableSurveyResult set = new VariableSurveyResult(result, maxX, maxY);
             discarded = true;
             return set;
@@ -83,6 +85,7 @@ public final class Variable implements Comparable<Variable> {
     public static final boolean HORIZONTAL = true;
     public static final boolean VERTICAL = false;
     private boolean horizon;
+    private int id = -1;
     private int length, x, y;
     private List<Variable> neighbors;
 
@@ -108,6 +111,13 @@ public final class Variable implements Comparable<Variable> {
      */
     public boolean getDirection() {return horizon;}
 
+    /**
+     * Queries the id of this variable, which is its index in the variables of the {@link VariableSurveyResult}
+     * built together. Ids are numbered from zero without gaps, so that a state of variables can be stored in an array.
+     * @return the id; or -1 if this variable is not built yet
+     */
+    public int getId() {return id;}
+
     /**
      * Queries the count of neighbors of this variable.
      */
@@ -135,7 +145,7 @@ public final class Variable implements Comparable<Variable> {
 
     @Override
     public int hashCode() {
-        int h = length | (x << 12) | (y << 24);
+        int h = (x * 31 + y) * 31 + length;
         return horizon? h: ~h;
     }
 
@@ -0,0 +1,82 @@
+package io.hyperbola.stream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import io.hyperbola.algo.AbstractNode;
+
+/**
+ * A chain of {@link KeyFilterer}s, optionally followed by a selector, compiled into a single pass. The keys of each
+ * candidate are compared with those of the best candidate so far lexicographically, and a later key is computed only
+ * if the former ones tie. No lists are built between the filterers; the candidates tied on all keys are collected only
+ * if the selector needs them. If the selector is built by {@link Selector#minimum(Comparator)}, its comparator is used
+ * as the last key and nothing is collected at all.
+ */
+final class CompiledFilterer<T> implements Filterer<T>, Selector<T> {
+
+    private final Comparator<? super T> comparator;
+    private final KeyFilterer<T>[] filterers;
+    private final Selector<T> selector;
+
+    /**
+     * Compiles a chain.
+     * @param filterers filterers in the order to be applied
+     * @param selector  picks the final one among the candidates tied on all keys; or null to pick the first one
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    CompiledFilterer(List<KeyFilterer<T>> filterers, Selector<T> selector) {
+        this.filterers = filterers.toArray(new KeyFilterer[0]);
+        this.selector = selector;
+        this.comparator = selector instanceof MinimumSelector? ((MinimumSelector<T>) selector).comparator: null;
+    }
+
+    @Override
+    public List<T> filterFrom(Collection<T> candidates, AbstractNode successor) {
+        List<T> passed = new ArrayList<>();
+        scan(candidates, successor, passed);
+        return passed;
+    }
+
+    /**
+     * Finds the candidates having the lowest keys.
+     * @param passed where the candidates tied on all keys are put in order; or null to break ties by the comparator
+     * @return the first such candidate, or the least one by the comparator; or null if there are no candidates
+     */
+    private T scan(Collection<T> candidates, AbstractNode successor, List<T> passed) {
+        int n = filterers.length, key = 0, i;
+        int[] bestKeys = new int[n];
+        T best = null;
+        for (T t: candidates) {
+            i = 0;
+            if (best != null) {
+                for (; i < n; i++) {
+                    key = filterers[i].keyOf(t, successor);
+                    if (key != bestKeys[i]) break;
+                }
+                if (i == n) {
+                    // Tied on all keys
+                    if (passed != null) passed.add(t);
+                    else if (comparator.compare(t, best) < 0) best = t;
+                    continue;
+                }
+                if (key > bestKeys[i]) continue;
+                bestKeys[i++] = key;
+            }
+            for (; i < n; i++) bestKeys[i] = filterers[i].keyOf(t, successor);
+            best = t;
+            if (passed != null) {
+                passed.clear();
+                passed.add(t);
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public T selectFrom(Collection<T> candidates, AbstractNode successor) {
+        if (comparator != null) return scan(candidates, successor, null);
+        List<T> passed = new ArrayList<>();
+        T first = scan(candidates, successor, passed);
+        return selector == null? first: selector.select(passed, successor);
+    }
+}
@@ -0,0 +1,34 @@
+package io.hyperbola.stream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import io.hyperbola.algo.AbstractNode;
+
+/**
+ * A filterer that selects the candidates having the lowest key. Since the key of a single candidate can be computed
+ * alone, a chain of such filterers can be compiled by {@link LayerFilterer#compile(Selector)} into a single pass.
+ */
+@FunctionalInterface
+public interface KeyFilterer<T> extends Filterer<T> {
+
+    @Override
+    default List<T> filterFrom(Collection<T> candidates, AbstractNode successor) {
+        List<T> passed = new ArrayList<>();
+        int min = Integer.MAX_VALUE, key;
+        for (T t: candidates) {
+            key = keyOf(t, successor);
+            if (key > min) continue;
+            if (key < min) {
+                min = key;
+                passed.clear();
+            }
+            passed.add(t);
+        }
+        return passed;
+    }
+
+    /**
+     * Queries the key of a candidate. Candidates having lower keys are preferred.
+     */
+    int keyOf(T candidate, AbstractNode successor);
+}
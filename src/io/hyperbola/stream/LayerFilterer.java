@@ -1,5 +1,7 @@
 package io.hyperbola.stream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import io.hyperbola.algo.AbstractNode;
 
@@ -18,6 +20,40 @@ public class LayerFilterer<T> implements Filterer<T> {
         this.filterer = filterer;
     }
 
+    /**
+     * Compiles this chain into a filterer which selects the same candidates in a single pass, without building lists
+     * between the layers. This chain is compiled only if all layers are {@link KeyFilterer}s; otherwise this chain
+     * itself is returned. The chain should be compiled once and kept, rather than rebuilt on every filtering.
+     */
+    public Filterer<T> compile() {
+        List<KeyFilterer<T>> layers = keyLayers();
+        return layers == null? this: new CompiledFilterer<>(layers, null);
+    }
+
+    /**
+     * Compiles this chain followed by a selector into a selector which picks the same candidate in a single pass. This
+     * chain is compiled only if all layers are {@link KeyFilterer}s; otherwise the same as {@link #then(Selector)}. The
+     * chain should be compiled once and kept, rather than rebuilt on every selection.
+     */
+    public Selector<T> compile(Selector<T> selector) {
+        List<KeyFilterer<T>> layers = keyLayers();
+        return layers == null? then(selector): new CompiledFilterer<>(layers, selector);
+    }
+
+    /**
+     * Queries the layers of this chain from the first one.
+     * @return the layers; or null if some layer is not a {@link KeyFilterer}
+     */
+    private List<KeyFilterer<T>> keyLayers() {
+        List<KeyFilterer<T>> layers = new ArrayList<>();
+        for (LayerFilterer<T> l = this; l != null && l.filterer != null; l = (LayerFilterer<T>) l.prev) {
+            if (!(l.filterer instanceof KeyFilterer)) return null;
+            layers.add((KeyFilterer<T>) l.filterer);
+        }
+        Collections.reverse(layers);
+        return layers;
+    }
+
     @Override
     public List<T> filterFrom(Collection<T> candidates, AbstractNode successor) {
         if (prev != null) candidates = prev.filter(candidates, successor);
@@ -0,0 +1,25 @@
+package io.hyperbola.stream;
+import java.util.Collection;
+import java.util.Comparator;
+import io.hyperbola.algo.AbstractNode;
+
+/**
+ * A selector picking the least candidate by a comparator; the first one if several are the least.
+ */
+final class MinimumSelector<T> implements Selector<T> {
+
+    final Comparator<? super T> comparator;
+
+    MinimumSelector(Comparator<? super T> comparator) {
+        this.comparator = comparator;
+    }
+
+    @Override
+    public T selectFrom(Collection<T> candidates, AbstractNode successor) {
+        T min = null;
+        for (T t: candidates) {
+            if (min == null || comparator.compare(t, min) < 0) min = t;
+        }
+        return min;
+    }
+}
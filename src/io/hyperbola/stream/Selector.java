@@ -1,6 +1,7 @@
 package io.hyperbola.stream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import io.hyperbola.algo.AbstractNode;
 import io.hyperbola.base.Variable;
 import static java.util.Comparator.naturalOrder;
@@ -13,9 +14,15 @@ public interface Selector<T> {
      * is defined by the sum of x- and y-coordinates of such variable's start point. If both horizontal and vertical
      * closest variables exist, picks the vertical one.
      */
-    Selector<Variable> ORIGIN_CLOSEST_SELECTOR = (candidates, successor) -> candidates.stream()
-                                                                                      .min(naturalOrder())
-                                                                                      .get();
+    Selector<Variable> ORIGIN_CLOSEST_SELECTOR = minimum(naturalOrder());
+
+    /**
+     * Picks the least one by a comparator. If several are the least, picks the first one. When such selector ends a
+     * chain compiled by {@link LayerFilterer#compile(Selector)}, the comparator is fused into the single pass.
+     */
+    static <T> Selector<T> minimum(Comparator<? super T> comparator) {
+        return new MinimumSelector<>(comparator);
+    }
 
     /** Picks randomly. */
     static <T> Selector<T> random() {
@@ -27,7 +34,7 @@ public interface Selector<T> {
 
     default T select(Collection<T> candidates, AbstractNode successor) {
         if (candidates.isEmpty()) return null;
-        else if (candidates.size() == 1) return candidates.stream().findFirst().get();
+        else if (candidates.size() == 1) return candidates.iterator().next();
         return selectFrom(candidates, successor);
     }
 